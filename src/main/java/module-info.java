@@ -1,5 +1,7 @@
 module uk.ac.soton.comp1206 {
     requires java.scripting;
+    requires java.management;
+    requires jdk.jfr;
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.media;
@@ -13,4 +15,5 @@ module uk.ac.soton.comp1206 {
     exports uk.ac.soton.comp1206.event;
     exports uk.ac.soton.comp1206.component;
     exports uk.ac.soton.comp1206.game;
+    exports uk.ac.soton.comp1206.ai;
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package uk.ac.soton.comp1206;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.PuzzleGenerator;
+import uk.ac.soton.comp1206.game.Puzzle;
+
+/**
+ * Generates puzzles using every core and writes them where the PuzzleScene looks for them.
+ *
+ * Usage: Puzzles [--count N] [--pieces P] [--solutions S] [--min-filled F] [--seed S] [--attempts A] [--threads T]
+ * [--cols C] [--rows R] [--out FILE]
+ */
+public class Puzzles {
+
+    private static final Logger logger = LogManager.getLogger(Puzzles.class);
+
+    /**
+     * Generate the puzzles described by the commandline arguments
+     * @param args commandline arguments
+     * @throws IOException if the puzzles cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 200;
+        int pieces = 4;
+        int solutions = 1;
+        int minFilled = 8;
+        long seed = 1;
+        long attempts = 100000000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cols = 5;
+        int rows = 5;
+        String out = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--count": count = Integer.parseInt(value); break;
+                case "--pieces": pieces = Integer.parseInt(value); break;
+                case "--solutions": solutions = Integer.parseInt(value); break;
+                case "--min-filled": minFilled = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--attempts": attempts = Long.parseLong(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--out": out = value; break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (out == null) {
+            out = Paths.get(System.getProperty(Puzzle.DIRECTORY_PROPERTY, "."), Puzzle.fileName(cols, rows)).toString();
+        }
+
+        var generator = new PuzzleGenerator(cols, rows, pieces, solutions, minFilled);
+        var pool = new ForkJoinPool(threads);
+        var puzzles = generator.generate(pool, seed, count, attempts);
+        pool.shutdown();
+
+        try (var output = new BufferedOutputStream(Files.newOutputStream(Paths.get(out)))) {
+            Puzzle.write(output, puzzles);
+        }
+        logger.info("Wrote {} puzzles to {}", puzzles.size(), out);
+    }
+}
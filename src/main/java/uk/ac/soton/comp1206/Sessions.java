@@ -0,0 +1,125 @@
+package uk.ac.soton.comp1206;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.BotSession;
+import uk.ac.soton.comp1206.ai.Histogram;
+import uk.ac.soton.comp1206.ai.MultiplayerBot;
+import uk.ac.soton.comp1206.ai.Policies;
+import uk.ac.soton.comp1206.game.PinningMonitor;
+import uk.ac.soton.comp1206.game.SeededPieceSource;
+import uk.ac.soton.comp1206.game.SessionExecutor;
+import uk.ac.soton.comp1206.game.TickClock;
+import uk.ac.soton.comp1206.network.Communicator;
+
+/**
+ * Sessions hosts many headless bot sessions in one JVM at once, each on a thread of its own, and reports how many ran
+ * at once, how many platform threads they took and how often virtual threads were pinned. Every session plays a
+ * seeded game with one of the built in policies, thinking for a while before every move. The sessions share a clock,
+ * which runs in real time at the given speed, or unlimited to skip the thinking time entirely.
+ *
+ * Given a server and a channel, every session is a MultiplayerBot instead, joining the channel over a Communicator of
+ * its own and playing the pieces the server issues once the game there starts.
+ *
+ * Usage: Sessions [--sessions N] [--threads virtual|platform] [--policy random|greedy|scripted|evaluator|expectimax]
+ * [--think-ms M] [--max-pieces P] [--seed S] [--cols C] [--rows R] [--speed X|unlimited] [--server URL --channel C]
+ */
+public class Sessions {
+
+    static {
+        //Every placement is logged by the game, which would swamp the output and the run time. This must run before
+        //the first logger is created, so it comes before the logger below.
+        System.getProperties().putIfAbsent(Simulator.LOG_LEVEL, "warn");
+    }
+
+    private static final Logger logger = LogManager.getLogger(Sessions.class);
+
+    /**
+     * Run the sessions described by the commandline arguments
+     * @param args commandline arguments
+     * @throws InterruptedException if interrupted while waiting for the sessions
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = 10000;
+        boolean virtual = true;
+        String policy = "greedy";
+        long thinkTime = 100;
+        int maxPieces = 50;
+        long seed = 1;
+        int cols = 5;
+        int rows = 5;
+        String server = null;
+        String channel = null;
+        var clock = new TickClock();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--sessions": sessions = Integer.parseInt(value); break;
+                case "--threads": virtual = value.equals("virtual"); break;
+                case "--policy": policy = value; break;
+                case "--think-ms": thinkTime = Long.parseLong(value); break;
+                case "--max-pieces": maxPieces = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--server": server = value; break;
+                case "--channel": channel = value; break;
+                case "--speed":
+                    if (value.equals("unlimited")) {
+                        clock.setUnlimited(true);
+                    } else {
+                        clock.setSpeed(Double.parseDouble(value));
+                    }
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i] + ", policies are " + Arrays.toString(Policies.NAMES));
+                    return;
+            }
+        }
+
+        var monitor = new PinningMonitor(Duration.ofMillis(1));
+        boolean monitored = monitor.start();
+        var executor = new SessionExecutor(virtual);
+        var policies = Policies.forName(policy);
+        logger.warn("Hosting {} sessions of {} on {} threads", sessions, policy,
+            executor.isVirtual() ? "virtual" : "platform");
+
+        long start = System.nanoTime();
+        var bots = new ArrayList<BotSession>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            long gameSeed = seed + i;
+            BotSession bot;
+            if (server != null && channel != null) {
+                bot = new MultiplayerBot(new Communicator(server), channel, policies.apply(gameSeed), thinkTime,
+                    maxPieces, clock);
+            } else {
+                bot = new BotSession(cols, rows, new SeededPieceSource(gameSeed), policies.apply(gameSeed), gameSeed,
+                    thinkTime, maxPieces, clock);
+            }
+            bots.add(bot);
+            executor.start(bot);
+        }
+        executor.shutdown(1, TimeUnit.DAYS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        monitor.stop();
+
+        var scores = new Histogram();
+        for (var bot : bots) {
+            if (bot.getResult() != null) scores.record(bot.getResult().getScore());
+        }
+        System.out.println(executor);
+        System.out.println("Score: " + scores);
+        System.out.printf("%.1f s, %.0f sessions/s, %d platform threads at most%n", seconds, sessions / seconds,
+            ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        System.out.println("Pinning: " + (monitored ? monitor.toString() : "not recorded on this runtime"));
+        System.out.println("Clock: " + clock);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.ac.soton.comp1206;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.Policies;
+import uk.ac.soton.comp1206.ai.Simulation;
+
+/**
+ * The Simulator plays many seeded headless games in parallel with one of the built in policies and prints the
+ * distributions of score, level, lines per piece and game length. It runs on the GameEngine alone, without JavaFX, so
+ * rule changes can be measured rather than guessed.
+ *
+ * Usage: Simulator [--policy random|greedy|scripted|evaluator|expectimax] [--games N] [--seed S] [--threads T]
+ * [--cols C] [--rows R] [--max-pieces P] [--move-ms M]
+ */
+public class Simulator {
+
+    /**
+     * The level of every logger, read by log4j2.xml when the first logger is created
+     */
+    public static final String LOG_LEVEL = "tetrecs.log.level";
+
+    static {
+        //Every placement is logged by the game, which would swamp the output and the run time. This must run before
+        //the first logger is created, so it comes before the logger below.
+        System.getProperties().putIfAbsent(LOG_LEVEL, "warn");
+    }
+
+    private static final Logger logger = LogManager.getLogger(Simulator.class);
+
+    /**
+     * Run the simulation described by the commandline arguments
+     * @param args commandline arguments
+     */
+    public static void main(String[] args) {
+        String policy = "greedy";
+        long games = 100000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cols = 5;
+        int rows = 5;
+        int maxPieces = 1000;
+        long moveTime = 1000;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--policy": policy = value; break;
+                case "--games": games = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--max-pieces": maxPieces = Integer.parseInt(value); break;
+                case "--move-ms": moveTime = Long.parseLong(value); break;
+                default:
+                    System.err.println("Unknown option " + args[i] + ", policies are " + Arrays.toString(Policies.NAMES));
+                    return;
+            }
+        }
+
+        var simulation = new Simulation(cols, rows, Policies.forName(policy), maxPieces, moveTime);
+        var pool = new ForkJoinPool(threads);
+        logger.warn("Simulating {} games of {} on {} threads", games, policy, threads);
+
+        long start = System.nanoTime();
+        var result = simulation.run(pool, seed, games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println(result);
+        System.out.printf("%.1f s, %.0f games/s, %.0f games/s/thread%n", seconds, games / seconds,
+            games / seconds / threads);
+    }
+}
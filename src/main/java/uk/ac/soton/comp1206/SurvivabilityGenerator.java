@@ -0,0 +1,55 @@
+package uk.ac.soton.comp1206;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.SurvivabilityTable;
+
+/**
+ * Generates the survivability table for a grid size using every core, writing it where the game looks for it.
+ *
+ * Usage: SurvivabilityGenerator [--cols C] [--rows R] [--out FILE] [--threads T]
+ */
+public class SurvivabilityGenerator {
+
+    private static final Logger logger = LogManager.getLogger(SurvivabilityGenerator.class);
+
+    /**
+     * Generate the table described by the commandline arguments
+     * @param args commandline arguments
+     * @throws IOException if the table cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int cols = 5;
+        int rows = 5;
+        String out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--out": out = value; break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (out == null) {
+            out = Paths.get(System.getProperty(SurvivabilityTable.DIRECTORY_PROPERTY, "."),
+                SurvivabilityTable.fileName(cols, rows)).toString();
+        }
+
+        var pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        SurvivabilityTable.generate(cols, rows, Paths.get(out), pool);
+        pool.shutdown();
+        logger.info("Generated in {} ms on {} threads", (System.nanoTime() - start) / 1000000, threads);
+    }
+}
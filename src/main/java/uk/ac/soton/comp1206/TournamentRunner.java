@@ -0,0 +1,81 @@
+package uk.ac.soton.comp1206;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.Policies;
+import uk.ac.soton.comp1206.ai.Policy;
+import uk.ac.soton.comp1206.ai.Tournament;
+
+/**
+ * The TournamentRunner plays built in policies head to head on identical seeded pieces and prints their win rates and
+ * score differences with 95% confidence intervals.
+ *
+ * Usage: TournamentRunner [--bots greedy,expectimax,...] [--matches N] [--seed S] [--threads T] [--cols C] [--rows R]
+ * [--max-pieces P]
+ */
+public class TournamentRunner {
+
+    static {
+        //Every placement is logged by the game, which would swamp the output and the run time. This must run before
+        //the first logger is created, so it comes before the logger below.
+        System.getProperties().putIfAbsent(Simulator.LOG_LEVEL, "warn");
+    }
+
+    private static final Logger logger = LogManager.getLogger(TournamentRunner.class);
+
+    /**
+     * Run the tournament described by the commandline arguments
+     * @param args commandline arguments
+     */
+    public static void main(String[] args) {
+        String bots = "greedy,evaluator,expectimax";
+        long matches = 1000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cols = 5;
+        int rows = 5;
+        int maxPieces = 1000;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--bots": bots = value; break;
+                case "--matches": matches = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--max-pieces": maxPieces = Integer.parseInt(value); break;
+                default:
+                    System.err.println("Unknown option " + args[i] + ", policies are " + Arrays.toString(Policies.NAMES));
+                    return;
+            }
+        }
+
+        var names = Arrays.asList(bots.split(","));
+        List<LongFunction<Policy>> factories = new ArrayList<>();
+        for (var name : names) {
+            factories.add(Policies.forName(name));
+        }
+
+        var tournament = new Tournament(cols, rows, names, factories, maxPieces);
+        var pool = new ForkJoinPool(threads);
+        logger.warn("Playing {} matches of {} on {} threads", matches, names, threads);
+
+        long start = System.nanoTime();
+        var result = tournament.run(pool, seed, matches);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println(result);
+        System.out.printf("%.1f s, %.0f matches/s, %.0f matches/s/thread%n", seconds, matches / seconds,
+            matches / seconds / threads);
+    }
+}
@@ -0,0 +1,93 @@
+package uk.ac.soton.comp1206;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.Evaluator;
+import uk.ac.soton.comp1206.ai.EvaluatorPolicy;
+import uk.ac.soton.comp1206.ai.ExpectimaxPolicy;
+import uk.ac.soton.comp1206.ai.GeneticTuner;
+import uk.ac.soton.comp1206.ai.Policy;
+
+/**
+ * The Tuner evolves Evaluator weights with the GeneticTuner on every core and prints the best weights found. Running it
+ * again with the same checkpoint resumes where the last run stopped.
+ *
+ * Usage: Tuner [--policy evaluator|expectimax] [--population N] [--games G] [--generations N] [--seed S]
+ * [--threads T] [--cols C] [--rows R] [--max-pieces P] [--checkpoint FILE]
+ */
+public class Tuner {
+
+    static {
+        //Every placement is logged by the game, which would swamp the output and the run time. This must run before
+        //the first logger is created, so it comes before the logger below.
+        System.getProperties().putIfAbsent(Simulator.LOG_LEVEL, "warn");
+        System.getProperties().putIfAbsent("tetrecs.tuner.log.level", "info");
+    }
+
+    private static final Logger logger = LogManager.getLogger(Tuner.class);
+
+    /**
+     * Run the tuner described by the commandline arguments
+     * @param args commandline arguments
+     * @throws IOException if the checkpoint cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        String policy = "evaluator";
+        int population = 32;
+        int games = 256;
+        int generations = 20;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cols = 5;
+        int rows = 5;
+        int maxPieces = 1000;
+        String checkpoint = "tuner-checkpoint.txt";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--policy": policy = value; break;
+                case "--population": population = Integer.parseInt(value); break;
+                case "--games": games = Integer.parseInt(value); break;
+                case "--generations": generations = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--max-pieces": maxPieces = Integer.parseInt(value); break;
+                case "--checkpoint": checkpoint = value; break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        Function<Evaluator, Policy> factory;
+        switch (policy) {
+            case "evaluator":
+                factory = evaluator -> new EvaluatorPolicy(evaluator, true);
+                break;
+            case "expectimax":
+                factory = evaluator -> new ExpectimaxPolicy(evaluator, true);
+                break;
+            default:
+                System.err.println("Unknown policy " + policy + ", policies are evaluator and expectimax");
+                return;
+        }
+
+        var tuner = new GeneticTuner(cols, rows, factory, population, games, maxPieces, seed, Paths.get(checkpoint));
+        var pool = new ForkJoinPool(threads);
+        logger.warn("Tuning {} from generation {} on {} threads", policy, tuner.getGeneration(), threads);
+
+        var best = tuner.run(pool, generations);
+        pool.shutdown();
+
+        System.out.printf("%s, mean score %.0f%n", best, tuner.getBestFitness());
+    }
+}
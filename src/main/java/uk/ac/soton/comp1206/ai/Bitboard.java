@@ -0,0 +1,295 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * A Bitboard holds the precomputed masks for searching a grid of at most 64 blocks as a single long, using the same
+ * layout as {@link Grid#getOccupancy()}: the block at x, y is bit y * cols + x.
+ *
+ * For every piece it holds the mask of every distinct placement that fits inside the grid, so a placement is legal
+ * when its mask does not overlap the board. Some rotations of a piece only shift the same blocks within the piece's 3x3
+ * area, so the same mask can be reached from several rotations and centres. Each mask is kept once, for the first
+ * rotation and centre that reaches it, so no search counts the same placement twice. It also holds the mask of every row and column, for
+ * finding full lines, and the Zobrist key of every placement, for keeping a board's key up to date as it is played on.
+ *
+ * Bitboards are immutable and shared, one per grid size.
+ */
+public class Bitboard {
+
+    private static final ConcurrentHashMap<Integer, Bitboard> SIZES = new ConcurrentHashMap<>();
+
+    private final int cols;
+    private final int rows;
+
+    /**
+     * Every block of the grid
+     */
+    private final long full;
+
+    /**
+     * The mask of every row, then every column
+     */
+    private final long[] lines;
+
+    /**
+     * The placement masks of every piece
+     */
+    private final long[][] masks;
+
+    /**
+     * The rotation, centre x and centre y of every placement, packed as rotation << 16 | y << 8 | x
+     */
+    private final int[][] placements;
+
+    /**
+     * The Zobrist key of every placement mask, which is the change to a board's key made by playing it
+     */
+    private final long[][] maskKeys;
+
+    /**
+     * Create the masks for a grid size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    private Bitboard(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.full = cols * rows == 64 ? -1L : (1L << (cols * rows)) - 1;
+
+        lines = new long[rows + cols];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                lines[y] |= bit(x, y);
+                lines[rows + x] |= bit(x, y);
+            }
+        }
+
+        masks = new long[GamePiece.PIECES][];
+        placements = new int[GamePiece.PIECES][];
+        maskKeys = new long[GamePiece.PIECES][];
+        var found = new long[GamePiece.ROTATIONS * cols * rows];
+        var where = new int[found.length];
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            int count = 0;
+            for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+                var piece = GamePiece.createPiece(shape, rotation);
+                if (!piece.isUniqueRotation()) continue;
+
+                for (int y = 0; y < rows; y++) {
+                    for (int x = 0; x < cols; x++) {
+                        long mask = mask(piece, x, y);
+                        if (mask != 0 && !contains(found, count, mask)) {
+                            found[count] = mask;
+                            where[count] = rotation << 16 | y << 8 | x;
+                            count++;
+                        }
+                    }
+                }
+            }
+            masks[shape] = Arrays.copyOf(found, count);
+            placements[shape] = Arrays.copyOf(where, count);
+            maskKeys[shape] = new long[count];
+            for (int placement = 0; placement < count; placement++) {
+                maskKeys[shape][placement] = Zobrist.hash(masks[shape][placement]);
+            }
+        }
+    }
+
+    /**
+     * Get the shared bitboard for a grid size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the bitboard
+     */
+    public static Bitboard forSize(int cols, int rows) {
+        if (cols < 1 || rows < 1 || cols * rows > 64) {
+            throw new IllegalArgumentException("Grid of " + cols + " x " + rows + " does not fit in a bitboard");
+        }
+        return SIZES.computeIfAbsent(cols << 16 | rows, key -> new Bitboard(cols, rows));
+    }
+
+    /**
+     * Check whether a grid size can be searched with a bitboard
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return true if the grid has at most 64 blocks
+     */
+    public static boolean fits(int cols, int rows) {
+        return cols * rows <= 64;
+    }
+
+    /**
+     * Check whether a mask has already been found
+     * @param found the masks found so far
+     * @param count the number of masks found
+     * @param mask the mask
+     * @return true if the mask is among the first count masks
+     */
+    private static boolean contains(long[] found, int count, long mask) {
+        for (int i = 0; i < count; i++) {
+            if (found[i] == mask) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the mask of a piece with its centre at x, y
+     * @param piece the piece
+     * @param x centre column
+     * @param y centre row
+     * @return the mask, or 0 if part of the piece is outside the grid
+     */
+    private long mask(GamePiece piece, int x, int y) {
+        long mask = 0;
+        for (int cell = 0; cell < piece.getCellCount(); cell++) {
+            int blockX = x + piece.getCellX(cell) - 1;
+            int blockY = y + piece.getCellY(cell) - 1;
+            if (blockX < 0 || blockX >= cols || blockY < 0 || blockY >= rows) return 0;
+            mask |= bit(blockX, blockY);
+        }
+        return mask;
+    }
+
+    /**
+     * Get the bit of a block
+     * @param x column
+     * @param y row
+     * @return the bit
+     */
+    public long bit(int x, int y) {
+        return 1L << (y * cols + x);
+    }
+
+    /**
+     * Get the blocks of every full row and column of a board
+     * @param board the board
+     * @return the blocks that would be cleared
+     */
+    public long clearMask(long board) {
+        long cleared = 0;
+        for (long line : lines) {
+            if ((board & line) == line) cleared |= line;
+        }
+        return cleared;
+    }
+
+    /**
+     * Count the full rows and columns of a board
+     * @param board the board
+     * @return the number of lines that would be cleared
+     */
+    public int countLines(long board) {
+        int count = 0;
+        for (long line : lines) {
+            if ((board & line) == line) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Check whether any placement of a piece fits on a board
+     * @param board the board
+     * @param shape the piece number
+     * @return true if the piece can be played
+     */
+    public boolean canPlay(long board, int shape) {
+        for (long mask : masks[shape]) {
+            if ((board & mask) == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the distinct placement masks of a piece, over every rotation. Must not be modified.
+     * @param shape the piece number
+     * @return the masks
+     */
+    public long[] getMasks(int shape) {
+        return masks[shape];
+    }
+
+    /**
+     * Get the change to a board's Zobrist key made by playing a placement and clearing the lines it completes, so a
+     * search can keep the key of the board up to date rather than hashing every board it reaches
+     * @param shape the piece number
+     * @param placement the index of the placement in {@link #getMasks(int)}
+     * @param cleared the blocks the placement clears
+     * @return the key change
+     */
+    public long keyChange(int shape, int placement, long cleared) {
+        long change = maskKeys[shape][placement];
+        return cleared == 0 ? change : change ^ Zobrist.hash(cleared);
+    }
+
+    /**
+     * Get the rotation of a placement
+     * @param shape the piece number
+     * @param placement the index of the placement in {@link #getMasks(int)}
+     * @return the rotation of the piece's shape
+     */
+    public int getRotation(int shape, int placement) {
+        return placements[shape][placement] >>> 16;
+    }
+
+    /**
+     * Get the centre column of a placement
+     * @param shape the piece number
+     * @param placement the index of the placement in {@link #getMasks(int)}
+     * @return the centre column
+     */
+    public int getX(int shape, int placement) {
+        return placements[shape][placement] & 0xff;
+    }
+
+    /**
+     * Get the centre row of a placement
+     * @param shape the piece number
+     * @param placement the index of the placement in {@link #getMasks(int)}
+     * @return the centre row
+     */
+    public int getY(int shape, int placement) {
+        return (placements[shape][placement] >>> 8) & 0xff;
+    }
+
+    /**
+     * Get the mask of a row or column
+     * @param line the row, or the number of rows plus the column
+     * @return the mask of the line
+     */
+    public long getLine(int line) {
+        return lines[line];
+    }
+
+    /**
+     * @return the number of rows plus the number of columns
+     */
+    public int getLineCount() {
+        return lines.length;
+    }
+
+    /**
+     * @return a mask of every block of the grid
+     */
+    public long getFull() {
+        return full;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,115 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.CoordinateSet;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.PieceSource;
+import uk.ac.soton.comp1206.game.TickClock;
+
+/**
+ * A BotSession is one headless player playing a game in real time: it thinks for a while before every move, as a
+ * person or a bot on the other end of a network would, then plays the move its Policy chooses. If thinking takes as
+ * long as the game loop, the loop runs out first and a life is lost.
+ *
+ * The session is written as plain blocking code and spends nearly all of its time asleep or waiting for pieces, so it
+ * is meant to run on a thread of its own from a SessionExecutor. It sleeps on a TickClock, so sessions can be played
+ * faster than real time, or without waiting at all on an unlimited clock, and still play out the same.
+ *
+ * Subclasses can report every move as it is made, for example to a server, by overriding
+ * {@link #moved(GameEngine, boolean)}.
+ */
+public class BotSession implements Runnable {
+
+    private final int cols;
+    private final int rows;
+    private final PieceSource pieceSource;
+    private final Policy policy;
+    private final long seed;
+    private final long thinkTime;
+    private final int maxPieces;
+    private final TickClock clock;
+
+    private volatile GameResult result;
+
+    /**
+     * Create a new session
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSource the source of the pieces, which may block until pieces arrive
+     * @param policy the policy choosing the moves
+     * @param seed the seed recorded in the result
+     * @param thinkTime the time spent before every move in milliseconds
+     * @param maxPieces the number of pieces after which the session stops
+     * @param clock the clock the session thinks by
+     */
+    public BotSession(int cols, int rows, PieceSource pieceSource, Policy policy, long seed, long thinkTime,
+            int maxPieces, TickClock clock) {
+        this.cols = cols;
+        this.rows = rows;
+        this.pieceSource = pieceSource;
+        this.policy = policy;
+        this.seed = seed;
+        this.thinkTime = thinkTime;
+        this.maxPieces = maxPieces;
+        this.clock = clock;
+    }
+
+    /**
+     * Play the game to the end, or until the session is interrupted
+     */
+    @Override
+    public void run() {
+        var engine = new GameEngine(cols, rows, pieceSource);
+        var lines = new int[1];
+        engine.addListener(new GameEventListener() {
+            @Override
+            public void linesCleared(int cleared, CoordinateSet blocks) {
+                lines[0] += cleared;
+            }
+        });
+
+        long start = System.nanoTime();
+        int pieces = 0;
+        engine.start();
+        while (!engine.isGameOver() && pieces < maxPieces) {
+            long delay = engine.getTimerDelay();
+            try {
+                clock.sleep(TickClock.toTicks(Math.min(thinkTime, delay)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (thinkTime >= delay) {
+                engine.loseLife();
+                moved(engine, false);
+                continue;
+            }
+
+            var move = policy.chooseMove(engine);
+            if (move != null && move.apply(engine)) {
+                pieces++;
+                moved(engine, true);
+            } else {
+                engine.loseLife();
+                moved(engine, false);
+            }
+        }
+        long time = (System.nanoTime() - start) / 1000000;
+        result = new GameResult(seed, engine.getScore(), engine.getLevel(), lines[0], pieces, time);
+    }
+
+    /**
+     * Called on the session's thread after every piece played or life lost
+     * @param engine the engine of the game
+     * @param placed true if a piece was played, false if a life was lost
+     */
+    protected void moved(GameEngine engine, boolean placed) {
+    }
+
+    /**
+     * @return the outcome of the game, or null if it has not ended
+     */
+    public GameResult getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,272 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.event.LineClearedListener;
+import uk.ac.soton.comp1206.game.CoordinateSet;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameState;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.SeededPieceSource;
+import uk.ac.soton.comp1206.ui.Scheduler;
+
+/**
+ * The DemoPlayer plays games by itself to show on the menu. A Policy plays a GameEngine as a repeating task of the
+ * scene showing it, one move at a fixed interval, and every state it reaches is copied into a Grid a GameBoard can
+ * show. When a game ends a new one starts with new pieces. The task is cancelled with the rest of the scene's tasks
+ * when the scene is left.
+ *
+ * The JavaFX thread only ever copies the latest state. If it falls behind, the states it missed are skipped rather than
+ * queued, so a slow frame never builds up a backlog.
+ *
+ * While it plays, the demo watches every frame and counts the frames that came late and the moves that took longer
+ * than the interval. Left running, it doubles as a soak test of the engine and the board: the counts and the heap in
+ * use are logged after every game.
+ */
+public class DemoPlayer {
+
+    private static final Logger logger = LogManager.getLogger(DemoPlayer.class);
+
+    /**
+     * The default time between moves in milliseconds
+     */
+    public static final long DEFAULT_INTERVAL = 350;
+
+    /**
+     * The number of moves to wait on a finished game before starting the next
+     */
+    private static final int GAME_OVER_PAUSE = 6;
+
+    /**
+     * A frame taking longer than this many nanoseconds, two frames at 60 frames per second, counts as dropped
+     */
+    private static final long DROPPED_FRAME = 33333333;
+
+    private final int cols;
+    private final int rows;
+    private final LongFunction<Policy> policyFactory;
+    private final long interval;
+
+    /**
+     * The grid shown in the UI, only changed on the JavaFX thread
+     */
+    private final Grid grid;
+
+    /**
+     * The repeating task the games are played by, or null when the demo is stopped
+     */
+    private ScheduledFuture<?> stepper;
+
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    //Only used by the repeating task, which never runs twice at once
+    private GameEngine engine;
+    private Policy policy;
+    private int pause;
+
+    /**
+     * The latest state not yet shown and the blocks cleared since the last one shown
+     */
+    private final AtomicReference<GameState> pending = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<CoordinateSet> cleared = new ConcurrentLinkedQueue<>();
+
+    private LineClearedListener lineClearedListener;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder lateMoves = new LongAdder();
+    private volatile long frames;
+    private volatile long droppedFrames;
+
+    /**
+     * Counts frames and dropped frames on the JavaFX thread
+     */
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        private long last;
+
+        @Override
+        public void handle(long now) {
+            if (last != 0) {
+                frames++;
+                if (now - last > DROPPED_FRAME) droppedFrames++;
+            }
+            last = now;
+        }
+
+        @Override
+        public void stop() {
+            super.stop();
+            last = 0;
+        }
+    };
+
+    /**
+     * Create a new demo player of the evaluator policy at the default interval
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public DemoPlayer(int cols, int rows) {
+        this(cols, rows, Policies.forName("evaluator"), DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Create a new demo player
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param policyFactory creates the policy playing each game, given the game's seed
+     * @param interval the time between moves in milliseconds
+     */
+    public DemoPlayer(int cols, int rows, LongFunction<Policy> policyFactory, long interval) {
+        this.cols = cols;
+        this.rows = rows;
+        this.policyFactory = policyFactory;
+        this.interval = interval;
+        this.grid = new Grid(cols, rows);
+    }
+
+    /**
+     * Start playing. Must be called on the JavaFX thread.
+     * @param tasks the tasks of the scene showing the demo, which the moves are played by
+     */
+    public void start(Scheduler.TaskGroup tasks) {
+        logger.info("Starting the demo, a move every {} ms", interval);
+        frameTimer.start();
+        stepper = tasks.scheduleWithFixedDelay(this::step, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop playing. Must be called on the JavaFX thread.
+     */
+    public void stop() {
+        if (stepper != null) {
+            stepper.cancel(false);
+            stepper = null;
+        }
+        frameTimer.stop();
+        logger.info("Demo stopped: {}", this);
+    }
+
+    /**
+     * Play one move, starting a new game if there is none
+     */
+    private void step() {
+        long start = System.nanoTime();
+        try {
+            if (engine == null || engine.isGameOver() && pause++ >= GAME_OVER_PAUSE) {
+                newGame();
+            } else if (!engine.isGameOver()) {
+                var move = policy.chooseMove(engine);
+                if (move != null && move.apply(engine)) {
+                    moves.increment();
+                } else {
+                    engine.loseLife();
+                }
+                if (engine.isGameOver()) {
+                    games.increment();
+                    logger.info("Demo game over with {} points: {}", engine.getScore(), this);
+                }
+            }
+            show(engine.getState());
+        } catch (RuntimeException e) {
+            //An exception would cancel the schedule, so start again instead
+            logger.error("Demo move failed: " + e.getMessage());
+            engine = null;
+        }
+        if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(interval)) {
+            lateMoves.increment();
+        }
+    }
+
+    /**
+     * Start a new game with new pieces
+     */
+    private void newGame() {
+        long seed = seeds.nextLong();
+        engine = new GameEngine(cols, rows, new SeededPieceSource(seed));
+        policy = policyFactory.apply(seed);
+        pause = 0;
+        engine.addListener(new GameEventListener() {
+            @Override
+            public void linesCleared(int lines, CoordinateSet blocks) {
+                cleared.add(blocks);
+            }
+        });
+        engine.start();
+    }
+
+    /**
+     * Show a state in the UI, unless a newer one arrives before the JavaFX thread gets to it
+     * @param state the state
+     */
+    private void show(GameState state) {
+        if (pending.getAndSet(state) != null) return;
+        Platform.runLater(() -> {
+            var latest = pending.getAndSet(null);
+            for (int x = 0; x < cols; x++) {
+                for (int y = 0; y < rows; y++) {
+                    if (grid.get(x, y) != latest.get(x, y)) grid.set(x, y, latest.get(x, y));
+                }
+            }
+            CoordinateSet blocks;
+            while ((blocks = cleared.poll()) != null) {
+                if (lineClearedListener != null) lineClearedListener.fadeOut(blocks);
+            }
+        });
+    }
+
+    /**
+     * Set the listener to be told about lines cleared, on the JavaFX thread
+     * @param listener the listener
+     */
+    public void setLineClearedListener(LineClearedListener listener) {
+        this.lineClearedListener = listener;
+    }
+
+    /**
+     * @return the grid showing the game, for a GameBoard
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return the number of games finished
+     */
+    public long getGames() {
+        return games.sum();
+    }
+
+    /**
+     * @return the number of moves played
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * @return the number of moves that took longer than the interval
+     */
+    public long getLateMoves() {
+        return lateMoves.sum();
+    }
+
+    @Override
+    public String toString() {
+        var runtime = Runtime.getRuntime();
+        return String.format("%d games, %d moves (%d late), %d frames (%d dropped), %d MB heap used", getGames(),
+            getMoves(), getLateMoves(), frames, droppedFrames, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+    }
+}
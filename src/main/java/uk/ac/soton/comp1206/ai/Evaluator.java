@@ -0,0 +1,106 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * An Evaluator scores how good a board is to carry on playing from, as a weighted sum of features:
+ * <ul>
+ *     <li>holes: empty blocks boxed in on every side, which only the smallest pieces can fill</li>
+ *     <li>fill: how full every row and column is, squared so nearly full lines count most</li>
+ *     <li>line potential: rows and columns one or two blocks from being cleared</li>
+ *     <li>space: the fraction of the grid that is empty</li>
+ *     <li>multiplier: how long the current chain of clearing moves is</li>
+ *     <li>playable: how many of the pieces could still be played somewhere, as a board where few fit soon costs a
+ *     life</li>
+ * </ul>
+ * The weights can be tuned, for example by the GeneticTuner.
+ */
+public class Evaluator {
+
+    /**
+     * The name of every weight, in order
+     */
+    public static final String[] FEATURES = { "holes", "fill", "line potential", "space", "multiplier", "playable" };
+
+    /**
+     * Weights tuned by the GeneticTuner on the 5x5 grid, to start from
+     */
+    public static final Evaluator DEFAULT = new Evaluator(-0.37, 48.5, -1.61, 3.87, 33.94, 5.72);
+
+    private final double[] weights;
+
+    /**
+     * Create a new evaluator
+     * @param weights one weight for every feature, in the order of {@link #FEATURES}
+     */
+    public Evaluator(double... weights) {
+        if (weights.length != FEATURES.length) {
+            throw new IllegalArgumentException("Expected " + FEATURES.length + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Score a board
+     * @param bitboard the masks of the grid size
+     * @param board the occupied blocks
+     * @param multiplier the multiplier the next clear would score with
+     * @return the value of the board, higher is better
+     */
+    public double evaluate(Bitboard bitboard, long board, int multiplier) {
+        int rows = bitboard.getRows();
+        int cols = bitboard.getCols();
+        long full = bitboard.getFull();
+
+        //A neighbour outside the grid counts as filled
+        long firstCol = bitboard.getLine(rows);
+        long lastCol = bitboard.getLine(rows + cols - 1);
+        long left = ((board << 1) & ~firstCol) | firstCol;
+        long right = ((board >>> 1) & ~lastCol) | lastCol;
+        long up = (board << cols) | bitboard.getLine(0);
+        long down = (board >>> cols) | bitboard.getLine(rows - 1);
+        long holes = ~board & full & left & right & up & down;
+
+        double fill = 0;
+        int potential = 0;
+        for (int line = 0; line < bitboard.getLineCount(); line++) {
+            int length = line < rows ? cols : rows;
+            int count = Long.bitCount(board & bitboard.getLine(line));
+            fill += (double) count * count / (length * length);
+            int missing = length - count;
+            if (missing == 1 || missing == 2) potential++;
+        }
+
+        double space = (double) Long.bitCount(~board & full) / (rows * cols);
+
+        int playable = 0;
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            if (bitboard.canPlay(board, shape)) playable++;
+        }
+
+        return weights[0] * Long.bitCount(holes)
+            + weights[1] * fill
+            + weights[2] * potential
+            + weights[3] * space
+            + weights[4] * (multiplier - 1)
+            + weights[5] * playable;
+    }
+
+    /**
+     * @return a copy of the weights
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Return a string representation of this evaluator
+     * @return the weights
+     */
+    @Override
+    public String toString() {
+        return "Evaluator " + Arrays.toString(weights);
+    }
+}
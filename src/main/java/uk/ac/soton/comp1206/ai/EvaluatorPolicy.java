@@ -0,0 +1,68 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * Plays the placement whose points plus the Evaluator's score of the board it leaves is highest, trying both the
+ * current piece and, if allowed, the next piece by swapping. It looks no further ahead, so it is thousands of times
+ * faster than the ExpectimaxPolicy, which makes it suited to tuning weights over many games.
+ *
+ * Only grids of at most 64 blocks are evaluated; larger grids are played greedily.
+ */
+public class EvaluatorPolicy implements Policy {
+
+    private final Evaluator evaluator;
+    private final boolean allowSwap;
+    private final GreedyPolicy fallback = new GreedyPolicy();
+
+    /**
+     * Create a new player with the default evaluator, which may swap pieces
+     */
+    public EvaluatorPolicy() {
+        this(Evaluator.DEFAULT, true);
+    }
+
+    /**
+     * Create a new player
+     * @param evaluator the evaluator of the boards left
+     * @param allowSwap true if the current and next pieces may be swapped
+     */
+    public EvaluatorPolicy(Evaluator evaluator, boolean allowSwap) {
+        this.evaluator = evaluator;
+        this.allowSwap = allowSwap;
+    }
+
+    @Override
+    public Move chooseMove(GameEngine engine) {
+        var grid = engine.getGrid();
+        if (!Bitboard.fits(grid.getCols(), grid.getRows())) {
+            return fallback.chooseMove(engine);
+        }
+
+        var bitboard = Bitboard.forSize(grid.getCols(), grid.getRows());
+        long board = grid.getOccupancy();
+        int multiplier = engine.getMultiplier();
+
+        Move best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int swap = 0; swap < (allowSwap ? 2 : 1); swap++) {
+            int shape = (swap == 0 ? engine.getCurrentPiece() : engine.getNextPiece()).getShape();
+            long[] masks = bitboard.getMasks(shape);
+            for (int placement = 0; placement < masks.length; placement++) {
+                if ((board & masks[placement]) != 0) continue;
+
+                long placed = board | masks[placement];
+                long cleared = bitboard.clearMask(placed);
+                int lines = bitboard.countLines(placed);
+                double value = ExpectimaxPolicy.points(lines, cleared, multiplier)
+                    + evaluator.evaluate(bitboard, placed & ~cleared, lines != 0 ? multiplier + 1 : 1);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = new Move(swap == 1, bitboard.getRotation(shape, placement), bitboard.getX(shape, placement),
+                        bitboard.getY(shape, placement));
+                }
+            }
+        }
+        return best;
+    }
+}
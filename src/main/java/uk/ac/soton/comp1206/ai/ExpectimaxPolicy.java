@@ -0,0 +1,199 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * Plays by expectimax search two pieces deep. The current piece is placed first (or the next piece, by swapping), then
+ * the piece that is left is known while the piece drawn after it is one of the 15 pieces with equal chance. For every
+ * first placement, the value of the board left is the average over the drawn piece of the best second placement, using
+ * either the known piece or the drawn one by swapping.
+ *
+ * Placements are valued by the points they score plus the Evaluator's score of the board they leave. Boards where a
+ * piece cannot be played at all are valued as losing a life. When a SurvivabilityTable exists for the grid size, boards
+ * where no piece can be played are recognised without searching them.
+ *
+ * Searches run on Bitboards, so only grids of at most 64 blocks are searched; larger grids are played greedily. The
+ * best second placement of every board, piece and multiplier is memoized in a TranspositionTable that is kept between
+ * moves. The table can be shared by players on other threads, as long as they use the same evaluator.
+ */
+public class ExpectimaxPolicy implements Policy {
+
+    /**
+     * The value of a board where a piece cannot be played
+     */
+    private static final double DEAD = -1000;
+
+    /**
+     * The number of slots of a table created for a single player
+     */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 16;
+
+    private final Evaluator evaluator;
+    private final boolean allowSwap;
+    private final GreedyPolicy fallback = new GreedyPolicy();
+    private final TranspositionTable table;
+
+    /**
+     * Create a new expectimax player with the default evaluator, which may swap pieces
+     */
+    public ExpectimaxPolicy() {
+        this(Evaluator.DEFAULT, true);
+    }
+
+    /**
+     * Create a new expectimax player with a table of its own
+     * @param evaluator the evaluator of the boards left
+     * @param allowSwap true if the current and next pieces may be swapped
+     */
+    public ExpectimaxPolicy(Evaluator evaluator, boolean allowSwap) {
+        this(evaluator, allowSwap,
+            new TranspositionTable(DEFAULT_TABLE_SIZE, TranspositionTable.Replacement.AGED_DEPTH));
+    }
+
+    /**
+     * Create a new expectimax player
+     * @param evaluator the evaluator of the boards left
+     * @param allowSwap true if the current and next pieces may be swapped
+     * @param table the table to memoize in, which may be shared with players using the same evaluator
+     */
+    public ExpectimaxPolicy(Evaluator evaluator, boolean allowSwap, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.allowSwap = allowSwap;
+        this.table = table;
+    }
+
+    @Override
+    public Move chooseMove(GameEngine engine) {
+        var grid = engine.getGrid();
+        if (!Bitboard.fits(grid.getCols(), grid.getRows())) {
+            return fallback.chooseMove(engine);
+        }
+
+        var bitboard = Bitboard.forSize(grid.getCols(), grid.getRows());
+        long board = grid.getOccupancy();
+        long key = grid.getZobristKey();
+        int multiplier = engine.getMultiplier();
+        int current = engine.getCurrentPiece().getShape();
+        int next = engine.getNextPiece().getShape();
+        table.newSearch();
+
+        Move best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int swap = 0; swap < (allowSwap ? 2 : 1); swap++) {
+            int first = swap == 0 ? current : next;
+            int known = swap == 0 ? next : current;
+            long[] masks = bitboard.getMasks(first);
+            for (int placement = 0; placement < masks.length; placement++) {
+                if ((board & masks[placement]) != 0) continue;
+
+                double value = valuePlacement(bitboard, board, key, first, placement, known, multiplier);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = new Move(swap == 1, bitboard.getRotation(first, placement), bitboard.getX(first, placement),
+                        bitboard.getY(first, placement));
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Value one legal placement of the piece being played: the points it scores plus the expected value of the best
+     * placement after it
+     * @param bitboard the masks of the grid size
+     * @param board the board
+     * @param key the Zobrist key of the board
+     * @param shape the piece being played
+     * @param placement the index of the placement in {@link Bitboard#getMasks(int)}
+     * @param known the piece that will be current after it
+     * @param multiplier the current multiplier
+     * @return the value of the placement
+     */
+    public double valuePlacement(Bitboard bitboard, long board, long key, int shape, int placement, int known,
+            int multiplier) {
+        long placed = board | bitboard.getMasks(shape)[placement];
+        long cleared = bitboard.clearMask(placed);
+        int lines = bitboard.countLines(placed);
+        return points(lines, cleared, multiplier) + expect(bitboard, placed & ~cleared,
+            key ^ bitboard.keyChange(shape, placement, cleared), known, lines != 0 ? multiplier + 1 : 1);
+    }
+
+    /**
+     * Value a board by averaging over the piece drawn next
+     * @param bitboard the masks of the grid size
+     * @param board the board
+     * @param key the Zobrist key of the board
+     * @param known the piece that will be current
+     * @param multiplier the multiplier the next clear would score with
+     * @return the expected value of the best second placement
+     */
+    private double expect(Bitboard bitboard, long board, long key, int known, int multiplier) {
+        var survivability = SurvivabilityTable.forSize(bitboard.getCols(), bitboard.getRows());
+        if (survivability != null && survivability.isDead(board)) return DEAD;
+
+        double knownValue = best(bitboard, board, key, known, multiplier);
+        double total = 0;
+        for (int drawn = 0; drawn < GamePiece.PIECES; drawn++) {
+            double value = knownValue;
+            if (allowSwap && drawn != known) {
+                value = Math.max(value, best(bitboard, board, key, drawn, multiplier));
+            }
+            total += value;
+        }
+        return total / GamePiece.PIECES;
+    }
+
+    /**
+     * Find the value of the best placement of a piece, using the table
+     * @param bitboard the masks of the grid size
+     * @param board the board
+     * @param boardKey the Zobrist key of the board
+     * @param shape the piece to place
+     * @param multiplier the multiplier the next clear would score with
+     * @return the points scored plus the value of the board left, or {@link #DEAD} if the piece cannot be played
+     */
+    private double best(Bitboard bitboard, long board, long boardKey, int shape, int multiplier) {
+        //The points scored depend on the exact multiplier, so every multiplier gets a key of its own
+        long key = boardKey ^ Zobrist.mix64(Long.MIN_VALUE | (long) shape << 32 | multiplier);
+        long entry = table.probe(key);
+        if (entry != 0) {
+            return TranspositionTable.getValue(entry);
+        }
+
+        double bestValue = DEAD;
+        for (long mask : bitboard.getMasks(shape)) {
+            if ((board & mask) != 0) continue;
+
+            long placed = board | mask;
+            long cleared = bitboard.clearMask(placed);
+            int lines = bitboard.countLines(placed);
+            int nextMultiplier = lines != 0 ? multiplier + 1 : 1;
+            double value = points(lines, cleared, multiplier)
+                + evaluator.evaluate(bitboard, placed & ~cleared, nextMultiplier);
+            bestValue = Math.max(bestValue, value);
+        }
+
+        table.store(key, (float) bestValue, 1, 0);
+        return bestValue;
+    }
+
+    /**
+     * The points scored by a clear, as scored by the GameEngine
+     * @param lines the number of lines cleared
+     * @param cleared the blocks cleared
+     * @param multiplier the current multiplier
+     * @return the points
+     */
+    static double points(int lines, long cleared, int multiplier) {
+        return lines * Long.bitCount(cleared) * 10 * multiplier;
+    }
+
+    /**
+     * @return the table this player memoizes in
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,84 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The outcome of one headless game
+ */
+public class GameResult {
+
+    private final long seed;
+    private final int score;
+    private final int level;
+    private final int lines;
+    private final int pieces;
+    private final long time;
+
+    /**
+     * Create a new result
+     * @param seed the seed of the game's pieces
+     * @param score the final score
+     * @param level the final level
+     * @param lines the number of lines cleared
+     * @param pieces the number of pieces placed
+     * @param time the simulated length of the game in milliseconds
+     */
+    public GameResult(long seed, int score, int level, int lines, int pieces, long time) {
+        this.seed = seed;
+        this.score = score;
+        this.level = level;
+        this.lines = lines;
+        this.pieces = pieces;
+        this.time = time;
+    }
+
+    /**
+     * @return the seed of the game's pieces
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the final score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the final level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the number of lines cleared
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * @return the number of pieces placed
+     */
+    public int getPieces() {
+        return pieces;
+    }
+
+    /**
+     * @return the simulated length of the game in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Return a string representation of this result
+     * @return the seed and counters
+     */
+    @Override
+    public String toString() {
+        return "GameResult [seed=" + seed + ", score=" + score + ", level=" + level + ", lines=" + lines
+            + ", pieces=" + pieces + ", time=" + time + "]";
+    }
+}
@@ -0,0 +1,341 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * The GeneticTuner evolves the weights of an Evaluator by playing seeded headless games with them.
+ *
+ * Every generation, each candidate weight vector plays the same seeded games, so candidates are compared on equal
+ * pieces, and its fitness is its mean score as scored by the GameEngine. Every candidate and every game is played in
+ * parallel across the pool. The fittest candidates are kept as they are and the rest of the next generation is bred
+ * from parents picked by tournament, by taking each weight from either parent and then mutating some of them.
+ *
+ * The seeds of a generation's games and the random choices made breeding it only depend on the tuner's seed and the
+ * generation number. After every generation the population is written to a checkpoint file, so a run that is stopped
+ * can be resumed from the last generation written and carries on exactly as it would have.
+ */
+public class GeneticTuner {
+
+    private static final Logger logger = LogManager.getLogger(GeneticTuner.class);
+
+    /**
+     * The number of fittest candidates carried into the next generation unchanged
+     */
+    private static final int ELITE = 2;
+
+    /**
+     * The number of candidates drawn for each tournament, the fittest of which becomes a parent
+     */
+    private static final int TOURNAMENT = 3;
+
+    /**
+     * The chance of every weight of a child being mutated
+     */
+    private static final double MUTATION_RATE = 0.3;
+
+    /**
+     * The standard deviation of a mutation, relative to the size of the weight
+     */
+    private static final double MUTATION_SCALE = 0.25;
+
+    private static final String HEADER = "# TetrECS genetic tuner checkpoint";
+
+    private final int cols;
+    private final int rows;
+    private final Function<Evaluator, Policy> policyFactory;
+    private final int games;
+    private final int maxPieces;
+    private final Path checkpoint;
+
+    private long seed;
+    private int generation;
+    private double[][] population;
+    private double[] best;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Create a new tuner, resuming from its checkpoint if one exists
+     * @param cols number of columns of the grid
+     * @param rows number of rows of the grid
+     * @param policyFactory creates the policy playing a candidate's games, given its evaluator
+     * @param size the number of candidates in every generation
+     * @param games the number of games every candidate plays per generation
+     * @param maxPieces the number of pieces after which a game is stopped
+     * @param seed the seed of the first population, the games and the breeding
+     * @param checkpoint the file the population is saved to after every generation, or null to not save it
+     * @throws IOException if the checkpoint exists but cannot be read
+     */
+    public GeneticTuner(int cols, int rows, Function<Evaluator, Policy> policyFactory, int size, int games,
+            int maxPieces, long seed, Path checkpoint) throws IOException {
+        if (size <= ELITE) {
+            throw new IllegalArgumentException("Population must be larger than " + ELITE + ": " + size);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.policyFactory = policyFactory;
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.checkpoint = checkpoint;
+        this.seed = seed;
+
+        if (checkpoint != null && Files.exists(checkpoint)) {
+            load(size);
+        } else {
+            seedPopulation(size);
+        }
+    }
+
+    /**
+     * Evolve the population for a number of generations, saving a checkpoint after each one
+     * @param pool the pool to play the games on
+     * @param generations the number of generations to run
+     * @return the best weights found so far
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public Evaluator run(ForkJoinPool pool, int generations) throws IOException {
+        long totalGames = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < generations; i++) {
+            long generationStart = System.nanoTime();
+            var fitness = evaluate(pool);
+            double seconds = (System.nanoTime() - generationStart) / 1e9;
+            long played = (long) population.length * games;
+            totalGames += played;
+
+            //Rank the candidates, fittest first
+            Integer[] order = IntStream.range(0, population.length).boxed().toArray(Integer[]::new);
+            Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+            if (fitness[order[0]] > bestFitness) {
+                bestFitness = fitness[order[0]];
+                best = population[order[0]].clone();
+            }
+
+            logger.info(String.format("Generation %d: best %.0f, mean %.0f with %s, %.0f games/s, %.0f games/s/core",
+                generation, fitness[order[0]], Arrays.stream(fitness).average().orElse(0),
+                Arrays.toString(population[order[0]]), played / seconds, played / seconds / pool.getParallelism()));
+
+            population = breed(fitness, order);
+            generation++;
+            if (checkpoint != null) {
+                save();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info(String.format("Played %d games in %.1f s, %.0f games/s/core", totalGames, seconds,
+            totalGames / seconds / pool.getParallelism()));
+        return new Evaluator(best);
+    }
+
+    /**
+     * Play every candidate's games for the current generation
+     * @param pool the pool to play on
+     * @return the mean score of every candidate
+     */
+    private double[] evaluate(ForkJoinPool pool) {
+        long firstSeed = Zobrist.mix64(seed ^ Zobrist.mix64(generation));
+        var candidates = population;
+        return pool.submit(() -> IntStream.range(0, candidates.length).parallel().mapToDouble(i -> {
+            var evaluator = new Evaluator(candidates[i]);
+            var simulation = new Simulation(cols, rows, gameSeed -> policyFactory.apply(evaluator), maxPieces, 1000);
+            return simulation.run(pool, firstSeed, games).getScore().getMean();
+        }).toArray()).join();
+    }
+
+    /**
+     * Breed the next generation
+     * @param fitness the fitness of every candidate
+     * @param order the candidates, fittest first
+     * @return the next population
+     */
+    private double[][] breed(double[] fitness, Integer[] order) {
+        var random = new SplittableRandom(Zobrist.mix64(~seed ^ Zobrist.mix64(generation)));
+        var next = new double[population.length][];
+        for (int i = 0; i < ELITE; i++) {
+            next[i] = population[order[i]].clone();
+        }
+        for (int i = ELITE; i < next.length; i++) {
+            var mother = population[select(fitness, random)];
+            var father = population[select(fitness, random)];
+            var child = new double[mother.length];
+            for (int w = 0; w < child.length; w++) {
+                child[w] = random.nextBoolean() ? mother[w] : father[w];
+                if (random.nextDouble() < MUTATION_RATE) {
+                    child[w] += gaussian(random) * MUTATION_SCALE * (Math.abs(child[w]) + 1);
+                }
+            }
+            next[i] = child;
+        }
+        return next;
+    }
+
+    /**
+     * Pick a parent by tournament
+     * @param fitness the fitness of every candidate
+     * @param random the generator to draw from
+     * @return the index of the fittest of the candidates drawn
+     */
+    private int select(double[] fitness, SplittableRandom random) {
+        int winner = random.nextInt(fitness.length);
+        for (int i = 1; i < TOURNAMENT; i++) {
+            int challenger = random.nextInt(fitness.length);
+            if (fitness[challenger] > fitness[winner]) winner = challenger;
+        }
+        return winner;
+    }
+
+    /**
+     * Draw from the standard normal distribution
+     * @param random the generator to draw from
+     * @return the value drawn
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Create the first population: the default weights and random variations of them
+     * @param size the number of candidates
+     */
+    private void seedPopulation(int size) {
+        var random = new SplittableRandom(seed);
+        var start = Evaluator.DEFAULT.getWeights();
+        population = new double[size][];
+        population[0] = start;
+        for (int i = 1; i < size; i++) {
+            population[i] = new double[start.length];
+            for (int w = 0; w < start.length; w++) {
+                population[i][w] = start[w] * (0.5 + random.nextDouble());
+            }
+        }
+        best = start.clone();
+        logger.info("Starting a population of {} from {}", size, Evaluator.DEFAULT);
+    }
+
+    /**
+     * Write the population to the checkpoint. The file is written next to the checkpoint and then moved over it, so an
+     * interruption never leaves a partly written checkpoint.
+     * @throws IOException if it cannot be written
+     */
+    private void save() throws IOException {
+        var lines = new ArrayList<String>();
+        lines.add(HEADER);
+        lines.add("seed " + seed);
+        lines.add("generation " + generation);
+        lines.add("best " + bestFitness + " " + join(best));
+        for (var candidate : population) {
+            lines.add("candidate " + join(candidate));
+        }
+
+        var temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temporary, lines);
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the population from the checkpoint
+     * @param size the number of candidates expected
+     * @throws IOException if it cannot be read or is not a checkpoint
+     */
+    private void load(int size) throws IOException {
+        var lines = Files.readAllLines(checkpoint);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException(checkpoint + " is not a tuner checkpoint");
+        }
+        var candidates = new ArrayList<double[]>();
+        try {
+            for (var line : lines.subList(1, lines.size())) {
+                var parts = line.split(" ");
+                switch (parts[0]) {
+                    case "seed": seed = Long.parseLong(parts[1]); break;
+                    case "generation": generation = Integer.parseInt(parts[1]); break;
+                    case "best":
+                        bestFitness = Double.parseDouble(parts[1]);
+                        best = parse(parts, 2);
+                        break;
+                    case "candidate": candidates.add(parse(parts, 1)); break;
+                    default:
+                        throw new IOException("Unknown checkpoint line: " + line);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException(checkpoint + " is corrupt: " + e.getMessage());
+        }
+        if (candidates.size() <= ELITE || best == null) {
+            throw new IOException(checkpoint + " has no population");
+        }
+        if (candidates.size() != size) {
+            logger.warn("Checkpoint has {} candidates rather than {}, keeping its population", candidates.size(), size);
+        }
+        population = candidates.toArray(new double[0][]);
+        logger.info("Resuming generation {} from {}", generation, checkpoint);
+    }
+
+    /**
+     * Parse the weights at the end of a checkpoint line
+     * @param parts the words of the line
+     * @param from the index of the first weight
+     * @return the weights
+     * @throws IOException if there is not a weight for every feature
+     */
+    private static double[] parse(String[] parts, int from) throws IOException {
+        if (parts.length - from != Evaluator.FEATURES.length) {
+            throw new IOException("Expected " + Evaluator.FEATURES.length + " weights: " + String.join(" ", parts));
+        }
+        var weights = new double[parts.length - from];
+        for (int w = 0; w < weights.length; w++) {
+            weights[w] = Double.parseDouble(parts[from + w]);
+        }
+        return weights;
+    }
+
+    /**
+     * Join weights into a line
+     * @param weights the weights
+     * @return the weights separated by spaces
+     */
+    private static String join(double[] weights) {
+        var builder = new StringBuilder();
+        for (double weight : weights) {
+            if (builder.length() > 0) builder.append(' ');
+            builder.append(weight);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the number of the generation to be played next
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the best weights found so far
+     */
+    public Evaluator getBest() {
+        return new Evaluator(best);
+    }
+
+    /**
+     * @return the mean score of the best weights found so far, in the generation they were found
+     */
+    public double getBestFitness() {
+        return bestFitness;
+    }
+}
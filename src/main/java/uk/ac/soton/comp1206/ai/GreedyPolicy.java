@@ -0,0 +1,65 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Plays the placement that clears the most lines right now, trying both the current piece and, by swapping, the next
+ * piece. Ties are broken in favour of the placement that leaves the rows and columns it touches fullest, so lines are
+ * built up towards being cleared.
+ */
+public class GreedyPolicy implements Policy {
+
+    @Override
+    public Move chooseMove(GameEngine engine) {
+        var grid = engine.getGrid();
+        Move best = null;
+        long bestValue = Long.MIN_VALUE;
+
+        for (int swap = 0; swap < 2; swap++) {
+            var piece = swap == 0 ? engine.getCurrentPiece() : engine.getNextPiece();
+            var placements = grid.legalPlacements(piece);
+            for (int index = placements.nextSetBit(0); index >= 0; index = placements.nextSetBit(index + 1)) {
+                var placed = GamePiece.createPiece(piece.getShape(), grid.placementRotation(index));
+                if (!placed.isUniqueRotation()) continue;
+
+                long value = evaluate(grid, placed, grid.placementX(index), grid.placementY(index));
+                //Only swap when it is strictly better
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = Move.fromPlacement(grid, swap == 1, index);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Value a legal placement
+     * @param grid the grid
+     * @param piece the piece in the rotation to play
+     * @param x the x coordinate of the centre of the piece
+     * @param y the y coordinate of the centre of the piece
+     * @return the lines cleared, then the squared fill of every touched row and column
+     */
+    private long evaluate(Grid grid, GamePiece piece, int x, int y) {
+        long value = (long) grid.countLinesCleared(piece, x, y) << 32;
+        for (int dy = 0; dy < 3; dy++) {
+            int cells = Integer.bitCount(piece.getRowMask(dy));
+            if (cells == 0) continue;
+            int fill = grid.getRowCount(y + dy - 1) + cells;
+            value += fill * fill;
+        }
+        for (int dx = 0; dx < 3; dx++) {
+            int cells = 0;
+            for (int dy = 0; dy < 3; dy++) {
+                cells += (piece.getRowMask(dy) >>> dx) & 1;
+            }
+            if (cells == 0) continue;
+            int fill = grid.getColCount(x + dx - 1) + cells;
+            value += fill * fill;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,291 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.event.HintListener;
+import uk.ac.soton.comp1206.game.GameState;
+import uk.ac.soton.comp1206.ui.Scheduler;
+
+/**
+ * The HintEngine finds the best placements of the current piece for a game state as a task of the scene showing the
+ * hints, so the search never runs on the JavaFX thread. At most one search is in flight: a request made while one
+ * runs is held until it finishes, replacing any request held before it, so however fast the player rotates and
+ * swaps, the engine takes no more than one of the scene's threads and never blocks it. Searches stop with the rest
+ * of the scene's tasks when the scene is left.
+ *
+ * Every search has a hard time budget. Placements are first ranked by the points they score and the Evaluator's score
+ * of the board they leave, which takes microseconds. They are then valued again by an ExpectimaxPolicy, best first,
+ * until every placement is done or the budget runs out. When the budget runs out the first ranking is delivered
+ * instead, so a hint is always shown within the budget.
+ *
+ * Asking for hints for a new state cancels the search for the last one. A cancelled search stops at the next
+ * placement and delivers nothing, so hints for a piece that has since been rotated, swapped or placed are never shown.
+ *
+ * Only grids of at most 64 blocks are searched. Larger grids get no hints.
+ */
+public class HintEngine {
+
+    private static final Logger logger = LogManager.getLogger(HintEngine.class);
+
+    /**
+     * The default budget of a search: half a frame at 60 frames per second
+     */
+    public static final long DEFAULT_BUDGET = 8000000;
+
+    /**
+     * The default number of hints
+     */
+    public static final int DEFAULT_HINTS = 3;
+
+    private final int hints;
+    private final long budget;
+    private final Evaluator evaluator;
+    private final ExpectimaxPolicy policy;
+
+    /**
+     * The tasks of the scene the searches run as
+     */
+    private final Scheduler.TaskGroup tasks;
+
+    /**
+     * Bumped by every request and cancel, so a search can tell it is no longer wanted
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * The latest request not yet picked up by a search
+     */
+    private final AtomicReference<Request> latest = new AtomicReference<>();
+
+    /**
+     * Whether a task is running searches, or has been handed to the scene's tasks to run them
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder withinBudget = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * Create a new hint engine with the default number of hints, budget and evaluator
+     * @param tasks the tasks of the scene showing the hints, which the searches run as
+     */
+    public HintEngine(Scheduler.TaskGroup tasks) {
+        this(tasks, DEFAULT_HINTS, DEFAULT_BUDGET, Evaluator.DEFAULT);
+    }
+
+    /**
+     * Create a new hint engine
+     * @param tasks the tasks of the scene showing the hints, which the searches run as
+     * @param hints the number of placements to suggest
+     * @param budget the time budget of a search in nanoseconds
+     * @param evaluator the evaluator of the boards left
+     */
+    public HintEngine(Scheduler.TaskGroup tasks, int hints, long budget, Evaluator evaluator) {
+        this.tasks = tasks;
+        this.hints = hints;
+        this.budget = budget;
+        this.evaluator = evaluator;
+        this.policy = new ExpectimaxPolicy(evaluator, true);
+    }
+
+    /**
+     * Find hints for a state, cancelling any search still running
+     * @param state the state to find hints for
+     * @param listener the listener to give the hints to, on the thread of the search
+     */
+    public void request(GameState state, HintListener listener) {
+        long id = generation.incrementAndGet();
+        requests.increment();
+        if (latest.getAndSet(new Request(state, listener, id)) != null) {
+            cancelled.increment();
+        }
+        if (running.compareAndSet(false, true) && tasks.execute(this::drain) == null) {
+            //The scene has been left, so nothing will search again
+            running.set(false);
+        }
+    }
+
+    /**
+     * Run the latest request until none is left. Only one drain runs at a time.
+     */
+    private void drain() {
+        while (true) {
+            var request = latest.getAndSet(null);
+            if (request == null) {
+                running.set(false);
+                //A request made after the last check but before the flag was cleared would otherwise wait forever
+                if (latest.get() == null || !running.compareAndSet(false, true)) return;
+                continue;
+            }
+            search(request.state, request.listener, request.id);
+        }
+    }
+
+    /**
+     * Cancel the search running, if there is one
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Cancel the search running, if there is one, and log how the searches so far have gone. Hints can be asked for
+     * again afterwards.
+     */
+    public void stop() {
+        cancel();
+        logger.info("Hint engine stopped: {}", this);
+    }
+
+    /**
+     * Search for the best placements of the current piece of a state. Only called by the one drain running, as the
+     * searches share the policy and its table.
+     * @param state the state
+     * @param listener the listener to give the hints to
+     * @param id the generation of the request
+     */
+    private void search(GameState state, HintListener listener, long id) {
+        if (generation.get() != id) {
+            cancelled.increment();
+            return;
+        }
+        long deadline = System.nanoTime() + budget;
+        if (state.isGameOver() || !Bitboard.fits(state.getCols(), state.getRows())) {
+            withinBudget.increment();
+            listener.hintsFound(state, Collections.emptyList());
+            return;
+        }
+
+        var bitboard = Bitboard.forSize(state.getCols(), state.getRows());
+        long board = state.getOccupancy();
+        int shape = state.getCurrentPiece().getShape();
+        int known = state.getNextPiece().getShape();
+        int multiplier = state.getMultiplier();
+
+        //Rank every legal placement by the board it leaves alone
+        long[] masks = bitboard.getMasks(shape);
+        var placements = new ArrayList<Integer>();
+        var quick = new double[masks.length];
+        for (int placement = 0; placement < masks.length; placement++) {
+            if ((board & masks[placement]) != 0) continue;
+
+            long placed = board | masks[placement];
+            long cleared = bitboard.clearMask(placed);
+            int lines = bitboard.countLines(placed);
+            quick[placement] = ExpectimaxPolicy.points(lines, cleared, multiplier)
+                + evaluator.evaluate(bitboard, placed & ~cleared, lines != 0 ? multiplier + 1 : 1);
+            placements.add(placement);
+        }
+        placements.sort((a, b) -> Double.compare(quick[b], quick[a]));
+
+        //Value them again looking a piece ahead, best first, while there is time
+        var deep = new double[masks.length];
+        policy.getTable().newSearch();
+        boolean finished = true;
+        for (int placement : placements) {
+            if (generation.get() != id) {
+                cancelled.increment();
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                finished = false;
+                break;
+            }
+            deep[placement] = policy.valuePlacement(bitboard, board, state.getZobristKey(), shape, placement, known,
+                multiplier);
+        }
+        if (generation.get() != id) {
+            cancelled.increment();
+            return;
+        }
+
+        if (finished) {
+            withinBudget.increment();
+            placements.sort((a, b) -> Double.compare(deep[b], deep[a]));
+        } else {
+            overBudget.increment();
+        }
+
+        var moves = new ArrayList<Move>();
+        for (int placement : placements.subList(0, Math.min(hints, placements.size()))) {
+            moves.add(new Move(false, bitboard.getRotation(shape, placement), bitboard.getX(shape, placement),
+                bitboard.getY(shape, placement)));
+        }
+        listener.hintsFound(state, moves);
+    }
+
+    /**
+     * @return the number of searches asked for
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of searches that finished within the budget
+     */
+    public long getWithinBudget() {
+        return withinBudget.sum();
+    }
+
+    /**
+     * @return the number of searches that ran out of time and delivered the first ranking
+     */
+    public long getOverBudget() {
+        return overBudget.sum();
+    }
+
+    /**
+     * @return the number of searches cancelled by a newer request
+     */
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return the fraction of delivered searches that finished within the budget
+     */
+    public double getWithinBudgetRate() {
+        long delivered = withinBudget.sum() + overBudget.sum();
+        return delivered == 0 ? 0 : (double) withinBudget.sum() / delivered;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d within %.1f ms budget (%.0f%%), %d over budget, %d cancelled",
+            getRequests(), getWithinBudget(), budget / 1e6, getWithinBudgetRate() * 100, getOverBudget(),
+            getCancelled());
+    }
+
+    /**
+     * A request for hints waiting for a search
+     */
+    private static class Request {
+
+        private final GameState state;
+        private final HintListener listener;
+        private final long id;
+
+        /**
+         * Create a new request
+         * @param state the state to find hints for
+         * @param listener the listener to give the hints to
+         * @param id the generation of the request
+         */
+        Request(GameState state, HintListener listener, long id) {
+            this.state = state;
+            this.listener = listener;
+            this.id = id;
+        }
+    }
+}
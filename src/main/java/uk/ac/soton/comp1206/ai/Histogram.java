@@ -0,0 +1,168 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * A Histogram records the distribution of a non-negative whole number, such as the scores of many games, in a fixed
+ * amount of memory. Values below 64 are counted exactly, and larger values in buckets 1/32 of a power of two wide, so
+ * percentiles are within about 3% whatever the range.
+ *
+ * Histograms are not thread safe, but two can be merged, so every worker can record into its own and the results be
+ * combined at the end.
+ */
+public class Histogram {
+
+    /**
+     * The number of buckets for every power of two above 64
+     */
+    private static final int SUB_BUCKETS = 32;
+
+    private static final int BUCKETS = 64 + (63 - 6) * SUB_BUCKETS;
+
+    /**
+     * The divisor values are shown with, for recording fractions as fixed point
+     */
+    private final double scale;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private double sum;
+    private double sumSquares;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Create a new empty histogram of whole numbers
+     */
+    public Histogram() {
+        this(1);
+    }
+
+    /**
+     * Create a new empty histogram of fixed point numbers
+     * @param scale the divisor recorded values are shown with
+     */
+    public Histogram(double scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * Record one value
+     * @param value the value, which must not be negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        sumSquares += (double) value * value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add every value recorded by another histogram to this one
+     * @param other the histogram to merge in
+     */
+    public void merge(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean of the values recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / count / scale;
+    }
+
+    /**
+     * @return the standard deviation of the values recorded
+     */
+    public double getStandardDeviation() {
+        if (count < 2) return 0;
+        double mean = sum / count;
+        double variance = (sumSquares - mean * sum) / (count - 1);
+        return Math.sqrt(Math.max(0, variance)) / scale;
+    }
+
+    /**
+     * @return the smallest value recorded
+     */
+    public double getMin() {
+        return count == 0 ? 0 : min / scale;
+    }
+
+    /**
+     * @return the largest value recorded
+     */
+    public double getMax() {
+        return count == 0 ? 0 : max / scale;
+    }
+
+    /**
+     * Get a percentile of the values recorded
+     * @param percentile the percentile, from 0 to 100
+     * @return the lowest value of the bucket the percentile falls in
+     */
+    public double getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long target = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, target)) {
+                return Math.max(min, Math.min(max, lowerBound(i))) / scale;
+            }
+        }
+        return max / scale;
+    }
+
+    /**
+     * Get the bucket a value is counted in
+     * @param value the value
+     * @return the bucket
+     */
+    private static int bucket(long value) {
+        if (value < 64) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 5)) & (SUB_BUCKETS - 1);
+        return 64 + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get the lowest value counted in a bucket
+     * @param bucket the bucket
+     * @return the lowest value
+     */
+    private static long lowerBound(int bucket) {
+        if (bucket < 64) return bucket;
+        int exponent = (bucket - 64) / SUB_BUCKETS + 6;
+        int sub = (bucket - 64) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - 5);
+    }
+
+    /**
+     * Return a summary of the distribution
+     * @return the mean, standard deviation and percentiles
+     */
+    @Override
+    public String toString() {
+        return String.format("mean %.2f sd %.2f | min %.2f p10 %.2f p50 %.2f p90 %.2f p99 %.2f max %.2f",
+            getMean(), getStandardDeviation(), getMin(), getPercentile(10), getPercentile(50), getPercentile(90),
+            getPercentile(99), getMax());
+    }
+}
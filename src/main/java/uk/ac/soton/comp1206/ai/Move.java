@@ -0,0 +1,94 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A Move is one decision made by a Policy: whether to swap the current and next pieces first, which rotation to play
+ * the piece in, and where to place its centre.
+ */
+public class Move {
+
+    private final boolean swap;
+    private final int rotation;
+    private final int x;
+    private final int y;
+
+    /**
+     * Create a new move
+     * @param swap true to swap the current and next pieces before placing
+     * @param rotation the rotation of the piece's shape to play
+     * @param x the x coordinate of the centre of the piece
+     * @param y the y coordinate of the centre of the piece
+     */
+    public Move(boolean swap, int rotation, int x, int y) {
+        this.swap = swap;
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Create the move for a placement index of {@link Grid#legalPlacements}
+     * @param grid the grid the placement was found on
+     * @param swap true to swap the current and next pieces before placing
+     * @param index the placement index
+     * @return the move
+     */
+    public static Move fromPlacement(Grid grid, boolean swap, int index) {
+        return new Move(swap, grid.placementRotation(index), grid.placementX(index), grid.placementY(index));
+    }
+
+    /**
+     * Play this move on an engine: swap if needed, rotate the current piece, then place it
+     * @param engine the engine to play on
+     * @return true if the piece was placed
+     */
+    public boolean apply(GameEngine engine) {
+        if (swap) {
+            engine.swap();
+        }
+        int turns = Math.floorMod(rotation - engine.getCurrentPiece().getRotation(), 4);
+        if (turns != 0) {
+            engine.rotate(turns);
+        }
+        return engine.place(x, y);
+    }
+
+    /**
+     * @return true if the pieces are swapped before placing
+     */
+    public boolean isSwap() {
+        return swap;
+    }
+
+    /**
+     * @return the rotation of the piece's shape
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * @return the x coordinate of the centre of the piece
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return the y coordinate of the centre of the piece
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Return a string representation of this move
+     * @return the swap, rotation and position
+     */
+    @Override
+    public String toString() {
+        return "Move [swap=" + swap + ", rotation=" + rotation + ", x=" + x + ", y=" + y + "]";
+    }
+}
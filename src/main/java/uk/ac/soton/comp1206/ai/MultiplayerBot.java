@@ -0,0 +1,135 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.event.CommunicationsListener;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.ServerPieceSource;
+import uk.ac.soton.comp1206.game.TickClock;
+import uk.ac.soton.comp1206.network.Communicator;
+
+/**
+ * A MultiplayerBot is a BotSession playing a multiplayer game on the server. It joins a channel over a Communicator,
+ * waits for the game to start, then plays the pieces the server issues through a ServerPieceSource, reporting its
+ * board, score and lives and finally its death just as a MultiplayerGame does.
+ *
+ * MultiplayerGame itself needs the JavaFX thread, so the bot plays the game on a GameEngine of its own instead. Waiting
+ * for the start and for pieces is done on a latch and a lock's condition, so the bot can run on a virtual thread of a
+ * SessionExecutor without pinning its carrier.
+ */
+public class MultiplayerBot extends BotSession implements CommunicationsListener {
+
+    private static final Logger logger = LogManager.getLogger(MultiplayerBot.class);
+
+    private final Communicator communicator;
+    private final String channel;
+    private final ServerPieceSource pieceSource;
+
+    /**
+     * Counted down when the game starts, or the server refuses to let the bot in
+     */
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile boolean refused;
+
+    private int sentScore;
+    private int sentLives = GameEngine.STARTING_LIVES;
+
+    /**
+     * Create a new bot
+     * @param communicator the communicator to the server
+     * @param channel the channel to join
+     * @param policy the policy choosing the moves
+     * @param thinkTime the time spent before every move in milliseconds
+     * @param maxPieces the number of pieces after which the bot stops
+     * @param clock the clock the bot thinks by
+     */
+    public MultiplayerBot(Communicator communicator, String channel, Policy policy, long thinkTime, int maxPieces,
+            TickClock clock) {
+        this(communicator, channel, new ServerPieceSource(communicator), policy, thinkTime, maxPieces, clock);
+    }
+
+    /**
+     * Create a new bot playing the pieces of the given server source
+     * @param communicator the communicator to the server
+     * @param channel the channel to join
+     * @param pieceSource the source of the pieces issued by the server
+     * @param policy the policy choosing the moves
+     * @param thinkTime the time spent before every move in milliseconds
+     * @param maxPieces the number of pieces after which the bot stops
+     * @param clock the clock the bot thinks by
+     */
+    private MultiplayerBot(Communicator communicator, String channel, ServerPieceSource pieceSource, Policy policy,
+            long thinkTime, int maxPieces, TickClock clock) {
+        super(5, 5, pieceSource, policy, 0, thinkTime, maxPieces, clock);
+        this.communicator = communicator;
+        this.channel = channel;
+        this.pieceSource = pieceSource;
+    }
+
+    /**
+     * Join the channel, wait for the game to start, then play it to the end and tell the server the bot has died
+     */
+    @Override
+    public void run() {
+        communicator.addListener(this);
+        communicator.send("JOIN " + channel);
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (refused) return;
+
+        logger.info("Bot playing in {}", channel);
+        super.run();
+        communicator.send("DIE");
+    }
+
+    /**
+     * Send the board after every piece played, and the score and lives whenever they change
+     * @param engine the engine of the game
+     * @param placed true if a piece was played, false if a life was lost
+     */
+    @Override
+    protected void moved(GameEngine engine, boolean placed) {
+        var state = engine.getState();
+        if (placed) {
+            var board = new StringBuilder("BOARD");
+            for (int x = 0; x < state.getCols(); x++) {
+                for (int y = 0; y < state.getRows(); y++) {
+                    board.append(' ').append(state.get(x, y));
+                }
+            }
+            communicator.send(board.toString());
+        }
+        if (state.getScore() != sentScore) {
+            sentScore = state.getScore();
+            communicator.send("SCORE " + sentScore);
+        }
+        if (state.getLives() != sentLives) {
+            sentLives = state.getLives();
+            communicator.send("LIVES " + sentLives);
+        }
+    }
+
+    /**
+     * Add the pieces issued by the server, and start playing when the game starts
+     * @param communication the message that was received
+     */
+    @Override
+    public void receiveCommunication(String communication) {
+        if (communication.startsWith("PIECE")) {
+            pieceSource.add(Integer.parseInt(communication.replace("PIECE ", "").trim()));
+        } else if (communication.startsWith("START")) {
+            started.countDown();
+        } else if (communication.startsWith("ERROR") && started.getCount() > 0) {
+            logger.error("Bot could not join {}: {}", channel, communication);
+            refused = true;
+            started.countDown();
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameState;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * The Oracle finds the highest scoring way to play a known sequence of pieces, as in a multiplayer game where the
+ * pieces are dealt by the server ahead of time. At every move either the current piece or, by swapping, the next piece
+ * is placed; the other becomes the current piece and the next piece of the sequence is drawn.
+ *
+ * The search is an exhaustive depth first branch and bound on Bitboards, split across a ForkJoinPool. The first moves
+ * are forked as tasks, which idle workers steal, and below them every task searches on its own. All tasks share the
+ * best score found so far: a line is cut off as soon as its score plus an upper bound of what is left cannot beat it.
+ * The bound counts every block on the board and in the pieces left as cleared by as many lines as any piece can
+ * complete at the highest multiplier reachable. Moves clearing lines are searched first, so a good score is found
+ * early and cuts off more.
+ *
+ * Two orders of placing the same pieces often reach the same board. Every board, current piece, move number and
+ * multiplier reached is recorded in a TranspositionTable with the best score it was reached with, and a line reaching
+ * it again with no more is cut off, since it can only score what the first line can.
+ *
+ * Lines end early if neither piece can be played; the time out that would follow is not searched.
+ */
+public class Oracle {
+
+    /**
+     * The number of moves forked as tasks before searching sequentially
+     */
+    private static final int SPLIT_DEPTH = 2;
+
+    /**
+     * The number of slots of the table of every search
+     */
+    private static final int TABLE_SIZE = 1 << 20;
+
+    /**
+     * The highest multiplier told apart in the table
+     */
+    private static final int MAX_MULTIPLIER = 31;
+
+    /**
+     * The keys xored into a board's key for the current piece, move number and multiplier
+     */
+    private static final long[] PIECE_KEYS = keys(GamePiece.PIECES, 1);
+    private static final long[] MOVE_KEYS = keys(256, 2);
+    private static final long[] MULTIPLIER_KEYS = keys(MAX_MULTIPLIER + 1, 3);
+
+    private final Bitboard bitboard;
+
+    /**
+     * The most lines any placement of each piece can touch
+     */
+    private final int[] maxLines = new int[GamePiece.PIECES];
+
+    /**
+     * The number of blocks of each piece
+     */
+    private final int[] sizes = new int[GamePiece.PIECES];
+
+    /**
+     * Create a new oracle for a grid size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public Oracle(int cols, int rows) {
+        if (!Bitboard.fits(cols, rows)) {
+            throw new IllegalArgumentException("The oracle can only search grids of at most 64 blocks");
+        }
+        this.bitboard = Bitboard.forSize(cols, rows);
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            var masks = bitboard.getMasks(shape);
+            sizes[shape] = Long.bitCount(masks[0]);
+            for (long mask : masks) {
+                int lines = 0;
+                for (int line = 0; line < bitboard.getLineCount(); line++) {
+                    if ((mask & bitboard.getLine(line)) != 0) lines++;
+                }
+                maxLines[shape] = Math.max(maxLines[shape], lines);
+            }
+        }
+    }
+
+    /**
+     * Find the best way to play a known sequence of pieces
+     * @param pool the pool to search on
+     * @param board the filled blocks, with bit y * cols + x set for every filled block
+     * @param multiplier the current multiplier
+     * @param current the current piece number
+     * @param next the next piece number
+     * @param following the piece numbers drawn after the next piece, in order
+     * @return the best score and the moves making it
+     */
+    public Result solve(ForkJoinPool pool, long board, int multiplier, int current, int next, int[] following) {
+        return solve(pool, board, Zobrist.hash(board), multiplier, current, next, following);
+    }
+
+    /**
+     * Find the best way to play a known sequence of pieces from a board whose Zobrist key is known
+     * @param pool the pool to search on
+     * @param board the filled blocks, with bit y * cols + x set for every filled block
+     * @param key the Zobrist key of the board
+     * @param multiplier the current multiplier
+     * @param current the current piece number
+     * @param next the next piece number
+     * @param following the piece numbers drawn after the next piece, in order
+     * @return the best score and the moves making it
+     */
+    private Result solve(ForkJoinPool pool, long board, long key, int multiplier, int current, int next,
+            int[] following) {
+        var incoming = new int[following.length + 1];
+        incoming[0] = next;
+        System.arraycopy(following, 0, incoming, 1, following.length);
+        if (incoming.length >= MOVE_KEYS.length) {
+            throw new IllegalArgumentException("At most " + (MOVE_KEYS.length - 1) + " pieces can be searched");
+        }
+
+        var search = new Search(incoming);
+        long start = System.nanoTime();
+        pool.invoke(search.new Node(board, key, current, 0, multiplier, 0, new int[incoming.length]));
+        return new Result(search.bestScore.get(), search.bestLine(), search.nodes.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * Compare a finished game with the best play of the same pieces. The game is split into windows of consecutive
+     * moves, and from the board each window started with, the score the player made over its moves is compared with
+     * the best score the oracle finds over the same pieces. Windows in which the game loop timed out are skipped, as
+     * the pieces were no longer the same.
+     * @param pool the pool to search on
+     * @param states the state before every piece was placed, in order
+     * @param drawn the number of pieces drawn before every piece was placed
+     * @param dealt every piece drawn in the game, in order
+     * @param finalScore the score at the end of the game
+     * @param window the number of moves in a window
+     * @param stopped checked before every window, and once true the windows compared so far are returned
+     * @return the scores of the player and the oracle
+     */
+    public Analysis analyse(ForkJoinPool pool, List<GameState> states, int[] drawn, int[] dealt, int finalScore,
+            int window, BooleanSupplier stopped) {
+        var analysis = new Analysis(window);
+        for (int first = 0; first + window <= states.size(); first += window) {
+            if (stopped.getAsBoolean()) break;
+            int last = first + window;
+            int drawnAfter = last < states.size() ? drawn[last] : drawn[first] + window;
+            if (drawnAfter - drawn[first] != window || drawn[first] + window - 1 > dealt.length) continue;
+
+            var state = states.get(first);
+            int[] following = new int[window - 1];
+            System.arraycopy(dealt, drawn[first], following, 0, window - 1);
+            var best = solve(pool, state.getOccupancy(), state.getZobristKey(), state.getMultiplier(),
+                state.getCurrentPiece().getShape(), state.getNextPiece().getShape(), following);
+
+            int endScore = last < states.size() ? states.get(last).getScore() : finalScore;
+            analysis.add(endScore - state.getScore(), best);
+        }
+        return analysis;
+    }
+
+    /**
+     * The state of one search
+     */
+    private class Search {
+
+        private final int[] incoming;
+
+        /**
+         * The blocks of every piece still to be drawn from every move on
+         */
+        private final int[] cellsLeft;
+
+        private final TranspositionTable table = new TranspositionTable(TABLE_SIZE,
+            TranspositionTable.Replacement.DEPTH);
+        private final AtomicLong bestScore = new AtomicLong(-1);
+        private final LongAdder nodes = new LongAdder();
+        private int[] bestLine = new int[0];
+
+        /**
+         * Create a new search
+         * @param incoming the piece drawn as the next piece at every move, starting with the next piece
+         */
+        Search(int[] incoming) {
+            this.incoming = incoming;
+            this.cellsLeft = new int[incoming.length + 1];
+            for (int move = incoming.length - 1; move >= 0; move--) {
+                cellsLeft[move] = cellsLeft[move + 1] + sizes[incoming[move]];
+            }
+        }
+
+        /**
+         * Record a line if it beats the best so far
+         * @param score the score of the line
+         * @param line the moves of the line
+         * @param length the number of moves
+         */
+        private void finish(long score, int[] line, int length) {
+            if (score <= bestScore.get()) return;
+            synchronized (this) {
+                if (score > bestScore.get()) {
+                    bestScore.set(score);
+                    bestLine = java.util.Arrays.copyOf(line, length);
+                }
+            }
+        }
+
+        /**
+         * @return the moves of the best line found
+         */
+        private synchronized List<Move> bestLine() {
+            var moves = new ArrayList<Move>();
+            for (int move : bestLine) {
+                int shape = move >>> 16 & 0xff;
+                int placement = move & 0xffff;
+                moves.add(new Move(move >>> 24 != 0, bitboard.getRotation(shape, placement),
+                    bitboard.getX(shape, placement), bitboard.getY(shape, placement)));
+            }
+            return moves;
+        }
+
+        /**
+         * Check whether a position can be cut off: it cannot beat the best line, or it was already reached with at
+         * least the same score
+         * @param board the filled blocks
+         * @param boardKey the Zobrist key of the board
+         * @param current the current piece
+         * @param move the move number
+         * @param multiplier the multiplier
+         * @param score the score so far
+         * @return true if the position need not be searched
+         */
+        private boolean cut(long board, long boardKey, int current, int move, int multiplier, long score) {
+            int left = incoming.length - move;
+            int lines = 0;
+            for (int m = move; m < incoming.length; m++) {
+                lines = Math.max(lines, maxLines[incoming[m]]);
+            }
+            lines = Math.max(lines, maxLines[current]);
+            long blocks = Long.bitCount(board) + sizes[current] + cellsLeft[move];
+            long bound = 10L * lines * blocks * (multiplier + left - 1);
+            if (score + bound <= bestScore.get()) return true;
+
+            long key = boardKey ^ PIECE_KEYS[current] ^ MOVE_KEYS[move]
+                ^ MULTIPLIER_KEYS[Math.min(multiplier, MAX_MULTIPLIER)];
+            long entry = table.probe(key);
+            if (entry != 0 && TranspositionTable.getIntValue(entry) >= score) return true;
+            //Scores are whole numbers, stored exactly rather than rounded to a float
+            table.storeInt(key, Math.toIntExact(score), left, 0);
+            return false;
+        }
+
+        /**
+         * Search a position sequentially
+         * @param board the filled blocks
+         * @param key the Zobrist key of the board
+         * @param current the current piece
+         * @param move the move number
+         * @param multiplier the multiplier
+         * @param score the score so far
+         * @param line the moves made so far, written to from the move number on
+         * @param searched the number of positions searched, added to
+         */
+        private void search(long board, long key, int current, int move, int multiplier, long score, int[] line,
+                long[] searched) {
+            searched[0]++;
+            if (move == incoming.length) {
+                finish(score, line, move);
+                return;
+            }
+            if (cut(board, key, current, move, multiplier, score)) return;
+
+            boolean played = false;
+            //Search the moves that clear lines before the rest
+            for (int pass = 0; pass < 2; pass++) {
+                for (int swap = 0; swap < 2; swap++) {
+                    int shape = swap == 0 ? current : incoming[move];
+                    int other = swap == 0 ? incoming[move] : current;
+                    //Swapping identical pieces changes nothing
+                    if (swap == 1 && shape == other) break;
+
+                    long[] masks = bitboard.getMasks(shape);
+                    for (int placement = 0; placement < masks.length; placement++) {
+                        if ((board & masks[placement]) != 0) continue;
+                        long placed = board | masks[placement];
+                        long cleared = bitboard.clearMask(placed);
+                        if ((cleared != 0) != (pass == 0)) continue;
+
+                        played = true;
+                        int lines = bitboard.countLines(placed);
+                        long points = (long) lines * Long.bitCount(cleared) * 10 * multiplier;
+                        line[move] = swap << 24 | shape << 16 | placement;
+                        search(placed & ~cleared, key ^ bitboard.keyChange(shape, placement, cleared), other,
+                            move + 1, lines != 0 ? multiplier + 1 : 1, score + points, line, searched);
+                    }
+                }
+            }
+            if (!played) {
+                finish(score, line, move);
+            }
+        }
+
+        /**
+         * A position searched as a task. Near the root its moves are forked as tasks of their own, deeper the
+         * position is searched sequentially.
+         */
+        private class Node extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final long board;
+            private final long key;
+            private final int current;
+            private final int move;
+            private final int multiplier;
+            private final long score;
+            private final int[] line;
+
+            /**
+             * Create a new task
+             * @param board the filled blocks
+             * @param key the Zobrist key of the board
+             * @param current the current piece
+             * @param move the move number
+             * @param multiplier the multiplier
+             * @param score the score so far
+             * @param line the moves made so far, owned by this task
+             */
+            Node(long board, long key, int current, int move, int multiplier, long score, int[] line) {
+                this.board = board;
+                this.key = key;
+                this.current = current;
+                this.move = move;
+                this.multiplier = multiplier;
+                this.score = score;
+                this.line = line;
+            }
+
+            @Override
+            protected void compute() {
+                if (move >= SPLIT_DEPTH || move == incoming.length) {
+                    var searched = new long[1];
+                    search(board, key, current, move, multiplier, score, line, searched);
+                    nodes.add(searched[0]);
+                    return;
+                }
+                nodes.increment();
+                if (cut(board, key, current, move, multiplier, score)) return;
+
+                var children = new ArrayList<Node>();
+                for (int swap = 0; swap < 2; swap++) {
+                    int shape = swap == 0 ? current : incoming[move];
+                    int other = swap == 0 ? incoming[move] : current;
+                    if (swap == 1 && shape == other) break;
+
+                    long[] masks = bitboard.getMasks(shape);
+                    for (int placement = 0; placement < masks.length; placement++) {
+                        if ((board & masks[placement]) != 0) continue;
+                        long placed = board | masks[placement];
+                        long cleared = bitboard.clearMask(placed);
+                        int lines = bitboard.countLines(placed);
+                        long points = (long) lines * Long.bitCount(cleared) * 10 * multiplier;
+                        var childLine = line.clone();
+                        childLine[move] = swap << 24 | shape << 16 | placement;
+                        var child = new Node(placed & ~cleared, key ^ bitboard.keyChange(shape, placement, cleared),
+                            other, move + 1, lines != 0 ? multiplier + 1 : 1, score + points, childLine);
+                        //Moves that clear lines first, so they are more likely to run before the rest
+                        if (cleared != 0) children.add(0, child);
+                        else children.add(child);
+                    }
+                }
+                if (children.isEmpty()) {
+                    finish(score, line, move);
+                    return;
+                }
+                ForkJoinTask.invokeAll(children);
+            }
+        }
+    }
+
+    /**
+     * Create random keys
+     * @param count the number of keys
+     * @param stream the number telling apart keys of different uses
+     * @return the keys
+     */
+    private static long[] keys(int count, int stream) {
+        var keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = Zobrist.mix64((long) stream << 32 ^ i ^ 0x5DEECE66DL);
+        }
+        return keys;
+    }
+
+    /**
+     * The best line found for a sequence of pieces
+     */
+    public static class Result {
+
+        private final long score;
+        private final List<Move> moves;
+        private final long nodes;
+        private final long time;
+
+        /**
+         * Create a new result
+         * @param score the score of the best line
+         * @param moves the moves of the best line
+         * @param nodes the number of positions searched
+         * @param time the time the search took in nanoseconds
+         */
+        Result(long score, List<Move> moves, long nodes, long time) {
+            this.score = score;
+            this.moves = moves;
+            this.nodes = nodes;
+            this.time = time;
+        }
+
+        /**
+         * @return the score of the best line
+         */
+        public long getScore() {
+            return score;
+        }
+
+        /**
+         * @return the moves of the best line, from the first
+         */
+        public List<Move> getMoves() {
+            return moves;
+        }
+
+        /**
+         * @return the number of positions searched
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * @return the time the search took in nanoseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("best %d in %d moves, %d positions in %.1f ms", score, moves.size(), nodes,
+                time / 1e6);
+        }
+    }
+
+    /**
+     * The scores of a player and the oracle over the windows of a game
+     */
+    public static class Analysis {
+
+        private final int window;
+        private int windows;
+        private long playerScore;
+        private long oracleScore;
+        private long nodes;
+        private long time;
+
+        /**
+         * Create a new empty analysis
+         * @param window the number of moves in a window
+         */
+        Analysis(int window) {
+            this.window = window;
+        }
+
+        /**
+         * Add a window
+         * @param player the score the player made
+         * @param oracle the best line of the oracle
+         */
+        void add(long player, Result oracle) {
+            windows++;
+            playerScore += player;
+            //The player may have played beyond what the oracle could see
+            oracleScore += Math.max(player, oracle.getScore());
+            nodes += oracle.getNodes();
+            time += oracle.getTime();
+        }
+
+        /**
+         * @return the number of windows compared
+         */
+        public int getWindows() {
+            return windows;
+        }
+
+        /**
+         * @return the points the player scored over the windows
+         */
+        public long getPlayerScore() {
+            return playerScore;
+        }
+
+        /**
+         * @return the points the best play scores over the windows
+         */
+        public long getOracleScore() {
+            return oracleScore;
+        }
+
+        /**
+         * @return the fraction of the best score the player made
+         */
+        public double getEfficiency() {
+            return oracleScore == 0 ? 1 : (double) playerScore / oracleScore;
+        }
+
+        /**
+         * @return the number of positions searched per second
+         */
+        public double getNodesPerSecond() {
+            return time == 0 ? 0 : nodes / (time / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("You scored %d of a possible %d (%.0f%%) over %d runs of %d pieces", playerScore,
+                oracleScore, getEfficiency() * 100, windows, window);
+        }
+    }
+}
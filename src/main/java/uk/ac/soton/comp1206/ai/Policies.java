@@ -0,0 +1,40 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.function.LongFunction;
+
+/**
+ * Looks up the built in policies by name, for choosing one from the command line
+ */
+public class Policies {
+
+    /**
+     * The names of every built in policy
+     */
+    public static final String[] NAMES = { "random", "greedy", "scripted", "evaluator", "expectimax" };
+
+    private Policies() {
+    }
+
+    /**
+     * Get a factory for a built in policy. The factory is given the seed of each game, so a policy that makes random
+     * choices makes the same ones for the same game.
+     * @param name the name of the policy
+     * @return a factory creating a new policy for every game
+     */
+    public static LongFunction<Policy> forName(String name) {
+        switch (name) {
+            case "random":
+                return RandomPolicy::new;
+            case "greedy":
+                return seed -> new GreedyPolicy();
+            case "scripted":
+                return seed -> new ScriptedPolicy();
+            case "evaluator":
+                return seed -> new EvaluatorPolicy();
+            case "expectimax":
+                return seed -> new ExpectimaxPolicy();
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + name);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * A Policy decides how to play the current piece of a game. Policies are used by the Simulator and any other headless
+ * player, and each instance is only ever used by one game at a time.
+ */
+public interface Policy {
+
+    /**
+     * Choose the next move. The engine must not be changed.
+     * @param engine the game to choose a move for
+     * @return the move to play, or null to play nothing and let the game loop time out
+     */
+    public Move chooseMove(GameEngine engine);
+}
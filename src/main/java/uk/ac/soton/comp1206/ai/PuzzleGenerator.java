@@ -0,0 +1,367 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Puzzle;
+
+/**
+ * The PuzzleGenerator makes puzzles: boards with some blocks filled and a sequence of pieces that clears them, with
+ * only one or a few ways of doing so.
+ *
+ * Every attempt is seeded. It builds a puzzle backwards from the empty board, undoing one random move at a time: a
+ * piece is taken off the board and, if the move cleared lines, the lines it cleared are put back. The board reached
+ * after undoing every move, played with the pieces in the order they were undone reversed, always has a solution. The
+ * solutions are then counted by a depth first search over the placements of the sequence, and the puzzle is kept if
+ * there are few enough. The search prunes a board as soon as a filled block is on no row or column the remaining
+ * pieces could complete, found with a few bitboard operations per line.
+ *
+ * A board rotated to fit the grid again is the same puzzle with the same pieces, so every puzzle is keyed by the
+ * smallest of its rotations and duplicates are dropped.
+ *
+ * Attempts are split across a ForkJoinPool in chunks, until enough puzzles are found. When two attempts find the same
+ * puzzle the one with the lower seed is kept, so the same seeds always give the same puzzles.
+ */
+public class PuzzleGenerator {
+
+    private static final Logger logger = LogManager.getLogger(PuzzleGenerator.class);
+
+    /**
+     * The number of random moves tried for every move undone before an attempt gives up
+     */
+    private static final int TRIES = 64;
+
+    /**
+     * The most blocks a piece can fill in one row or column
+     */
+    private static final int LINE_REACH = 3;
+
+    /**
+     * The most pieces a puzzle can have, so its pieces fit the key of a long
+     */
+    public static final int MAX_PIECES = 16;
+
+    private final int cols;
+    private final int rows;
+    private final int pieces;
+    private final int maxSolutions;
+    private final int minFilled;
+    private final Bitboard bitboard;
+
+    /**
+     * The number of blocks of every piece
+     */
+    private final int[] sizes = new int[GamePiece.PIECES];
+
+    /**
+     * The board transformations that map the grid onto itself
+     */
+    private final int[][] symmetries;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+
+    /**
+     * Create a new generator
+     * @param cols number of columns of the grid
+     * @param rows number of rows of the grid
+     * @param pieces the number of pieces of every puzzle
+     * @param maxSolutions the most solutions a puzzle may have, 1 for puzzles with a unique solution
+     * @param minFilled the fewest blocks a puzzle must start with filled
+     */
+    public PuzzleGenerator(int cols, int rows, int pieces, int maxSolutions, int minFilled) {
+        if (!Bitboard.fits(cols, rows)) {
+            throw new IllegalArgumentException("Puzzles can have at most " + Puzzle.MAX_BLOCKS + " blocks");
+        }
+        if (pieces < 1 || pieces > MAX_PIECES) {
+            throw new IllegalArgumentException("Puzzles must have from 1 to " + MAX_PIECES + " pieces: " + pieces);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.pieces = pieces;
+        this.maxSolutions = maxSolutions;
+        this.minFilled = minFilled;
+        this.bitboard = Bitboard.forSize(cols, rows);
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            sizes[shape] = Long.bitCount(bitboard.getMasks(shape)[0]);
+        }
+
+        //Quarter turns only map a square grid onto itself, a half turn maps any grid
+        int turns = cols == rows ? 4 : 2;
+        symmetries = new int[turns - 1][cols * rows];
+        for (int s = 0; s < symmetries.length; s++) {
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < cols; x++) {
+                    int tx;
+                    int ty;
+                    if (turns == 2 || s == 1) {
+                        tx = cols - 1 - x;
+                        ty = rows - 1 - y;
+                    } else if (s == 0) {
+                        tx = rows - 1 - y;
+                        ty = x;
+                    } else {
+                        tx = y;
+                        ty = cols - 1 - x;
+                    }
+                    symmetries[s][y * cols + x] = ty * cols + tx;
+                }
+            }
+        }
+    }
+
+    /**
+     * Generate puzzles in parallel
+     * @param pool the pool to search on
+     * @param firstSeed the seed of the first attempt, every following attempt using the next seed
+     * @param count the number of puzzles wanted
+     * @param maxAttempts the most attempts to make, even if fewer puzzles were found
+     * @return the puzzles found, at most count, in the order of the seeds that found them
+     */
+    public List<Puzzle> generate(ForkJoinPool pool, long firstSeed, int count, long maxAttempts) {
+        var found = new ConcurrentHashMap<Key, Found>();
+        long chunk = Math.max(256, pool.getParallelism() * 256L);
+        long end = firstSeed + maxAttempts;
+        long start = System.nanoTime();
+        long acceptedBefore = getAccepted();
+
+        for (long from = firstSeed; from < end && found.size() < count; from += chunk) {
+            long chunkStart = from;
+            long chunkEnd = Math.min(end, from + chunk);
+            pool.submit(() -> LongStream.range(chunkStart, chunkEnd).parallel().forEach(seed -> {
+                var puzzle = attempt(seed);
+                if (puzzle == null) return;
+                found.merge(key(puzzle), new Found(seed, puzzle), (a, b) -> a.seed <= b.seed ? a : b);
+            })).join();
+        }
+
+        var sorted = new ArrayList<>(found.values());
+        sorted.sort(Comparator.comparingLong(f -> f.seed));
+        var puzzles = new ArrayList<Puzzle>();
+        for (var f : sorted.subList(0, Math.min(count, sorted.size()))) {
+            puzzles.add(f.puzzle);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int cores = pool.getParallelism();
+        logger.info(String.format("Found %d puzzles in %.2f s: %d attempts, %d kept, %d duplicates, %d nodes searched, "
+            + "%.0f attempts/s/core, %.1f puzzles/s/core", puzzles.size(), seconds, getAttempts(), getAccepted(),
+            getAccepted() - acceptedBefore - found.size(), getNodes(), getAttempts() / seconds / cores,
+            found.size() / seconds / cores));
+        return puzzles;
+    }
+
+    /**
+     * Make one attempt at a puzzle
+     * @param seed the seed of the attempt
+     * @return the puzzle, or null if the attempt failed or found a puzzle with too many solutions
+     */
+    public Puzzle attempt(long seed) {
+        attempts.increment();
+        var random = new SplittableRandom(seed);
+        var sequence = new int[pieces];
+        long board = 0;
+        for (int step = pieces - 1; step >= 0; step--) {
+            long before = -1;
+            for (int tries = 0; tries < TRIES && before == -1; tries++) {
+                int shape = random.nextInt(GamePiece.PIECES);
+                long[] masks = bitboard.getMasks(shape);
+                before = undo(board, masks[random.nextInt(masks.length)], random);
+                sequence[step] = shape;
+            }
+            if (before == -1) return null;
+            board = before;
+        }
+        if (Long.bitCount(board) < minFilled) return null;
+
+        int solutions = countSolutions(board, sequence, maxSolutions + 1);
+        if (solutions == 0 || solutions > maxSolutions) return null;
+
+        accepted.increment();
+        return new Puzzle(cols, rows, board, sequence, solutions);
+    }
+
+    /**
+     * Undo a random move: find a board that the piece could have been placed on to leave the given board
+     * @param after the board after the move
+     * @param mask the blocks the piece was placed on
+     * @param random the generator choosing which lines the move cleared
+     * @return the board before the move, or -1 if the piece could not have been placed there
+     */
+    private long undo(long after, long mask, SplittableRandom random) {
+        //Any of the lines the piece touches may have been cleared by it
+        long lines = 0;
+        for (int line = 0; line < bitboard.getLineCount(); line++) {
+            if ((mask & bitboard.getLine(line)) != 0 && random.nextBoolean()) {
+                lines |= bitboard.getLine(line);
+            }
+        }
+
+        //Before clearing, the board was the board after with the cleared lines full, and exactly those lines full.
+        //Blocks left after the move cannot be on a line it cleared.
+        long placed = after | lines;
+        if ((after & lines) != 0 || (mask & ~placed) != 0 || bitboard.clearMask(placed) != lines) return -1;
+
+        long before = placed & ~mask;
+        return bitboard.clearMask(before) == 0 ? before : -1;
+    }
+
+    /**
+     * Count the ways to clear a board by playing the pieces in order, stopping early at a limit
+     * @param board the filled blocks
+     * @param sequence the piece numbers, in order
+     * @param limit the count to stop at
+     * @return the number of solutions, at most the limit
+     */
+    public int countSolutions(long board, int[] sequence, int limit) {
+        //reach[i] is the most blocks the pieces from i on can fill in any one row or column
+        var reach = new int[sequence.length + 1];
+        for (int i = sequence.length - 1; i >= 0; i--) {
+            reach[i] = reach[i + 1] + Math.min(sizes[sequence[i]], LINE_REACH);
+        }
+        var searched = new long[1];
+        int solutions = solve(board, sequence, 0, reach, limit, searched);
+        nodes.add(searched[0]);
+        return solutions;
+    }
+
+    /**
+     * Count the solutions of the rest of a sequence
+     * @param board the filled blocks
+     * @param sequence the piece numbers, in order
+     * @param index the next piece to play
+     * @param reach the most blocks the pieces from every index on can fill in a line
+     * @param limit the count to stop at
+     * @param searched the number of boards searched, added to
+     * @return the number of solutions, at most the limit
+     */
+    private int solve(long board, int[] sequence, int index, int[] reach, int limit, long[] searched) {
+        searched[0]++;
+        if (index == sequence.length) {
+            return board == 0 ? 1 : 0;
+        }
+
+        //Every filled block must be on a line the remaining pieces can complete
+        long completable = 0;
+        for (int line = 0; line < bitboard.getLineCount(); line++) {
+            long cells = bitboard.getLine(line);
+            if (Long.bitCount(cells & ~board) <= reach[index]) {
+                completable |= cells;
+            }
+        }
+        if ((board & ~completable) != 0) return 0;
+
+        int solutions = 0;
+        for (long mask : bitboard.getMasks(sequence[index])) {
+            if ((board & mask) != 0) continue;
+
+            long placed = board | mask;
+            solutions += solve(placed & ~bitboard.clearMask(placed), sequence, index + 1, reach, limit - solutions,
+                searched);
+            if (solutions >= limit) break;
+        }
+        return solutions;
+    }
+
+    /**
+     * Get the smallest of a board and its rotations that fit the grid
+     * @param board the filled blocks
+     * @return the canonical board
+     */
+    public long canonical(long board) {
+        long best = board;
+        for (var symmetry : symmetries) {
+            long image = 0;
+            for (long rest = board; rest != 0; rest &= rest - 1) {
+                image |= 1L << symmetry[Long.numberOfTrailingZeros(rest)];
+            }
+            if (Long.compareUnsigned(image, best) < 0) best = image;
+        }
+        return best;
+    }
+
+    /**
+     * Get the key of a puzzle, the same for every rotation of it
+     * @param puzzle the puzzle
+     * @return the key
+     */
+    private Key key(Puzzle puzzle) {
+        long packed = 0;
+        for (int piece : puzzle.getPieces()) {
+            packed = packed << 4 | piece;
+        }
+        return new Key(canonical(puzzle.getBoard()), packed);
+    }
+
+    /**
+     * @return the number of attempts made
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * @return the number of boards searched counting solutions
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * @return the number of attempts that found a puzzle, including duplicates
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * A puzzle's canonical board and packed pieces
+     */
+    private static class Key {
+
+        private final long board;
+        private final long pieces;
+
+        Key(long board, long pieces) {
+            this.board = board;
+            this.pieces = pieces;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            var key = (Key) other;
+            return key.board == board && key.pieces == pieces;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(board * 31 + pieces);
+        }
+    }
+
+    /**
+     * A puzzle and the seed of the attempt that found it
+     */
+    private static class Found {
+
+        private final long seed;
+        private final Puzzle puzzle;
+
+        Found(long seed, Puzzle puzzle) {
+            this.seed = seed;
+            this.puzzle = puzzle;
+        }
+    }
+}
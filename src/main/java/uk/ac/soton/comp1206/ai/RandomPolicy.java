@@ -0,0 +1,36 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.SplittableRandom;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * Plays the current piece at a legal placement chosen uniformly at random, never swapping
+ */
+public class RandomPolicy implements Policy {
+
+    private final SplittableRandom random;
+
+    /**
+     * Create a new random policy
+     * @param seed the seed of the random choices
+     */
+    public RandomPolicy(long seed) {
+        //Split so the choices are independent of a piece source using the same seed
+        this.random = new SplittableRandom(seed).split();
+    }
+
+    @Override
+    public Move chooseMove(GameEngine engine) {
+        var grid = engine.getGrid();
+        var placements = grid.legalPlacements(engine.getCurrentPiece());
+        int count = placements.cardinality();
+        if (count == 0) return null;
+
+        int index = placements.nextSetBit(0);
+        for (int skip = random.nextInt(count); skip > 0; skip--) {
+            index = placements.nextSetBit(index + 1);
+        }
+        return Move.fromPlacement(grid, false, index);
+    }
+}
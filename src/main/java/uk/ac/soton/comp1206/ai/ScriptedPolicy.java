@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * Plays the current piece at the first legal placement, reading rotations in order and then the grid from the top
+ * left. Fully deterministic, so it gives a fixed baseline for comparing rule changes.
+ */
+public class ScriptedPolicy implements Policy {
+
+    @Override
+    public Move chooseMove(GameEngine engine) {
+        var grid = engine.getGrid();
+        int index = grid.legalPlacements(engine.getCurrentPiece()).nextSetBit(0);
+        if (index < 0) return null;
+        return Move.fromPlacement(grid, false, index);
+    }
+}
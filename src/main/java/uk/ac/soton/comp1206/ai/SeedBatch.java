@@ -0,0 +1,59 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A SeedBatch plays a range of seeds on a ForkJoinPool, splitting it in half until it is small enough to play in one
+ * go. Every batch records into its own result, and the results of the two halves are merged on the way back up.
+ * Simulations and Tournaments both split their seeds this way.
+ * @param <R> the type of result recorded into
+ */
+class SeedBatch<R> extends RecursiveTask<R> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long from;
+    private final long to;
+    private final int size;
+    private final Supplier<R> create;
+    private final ObjLongConsumer<R> play;
+    private final BinaryOperator<R> merge;
+
+    /**
+     * Create a new batch
+     * @param from the first seed
+     * @param to the seed after the last
+     * @param size the number of seeds played without splitting further
+     * @param create creates an empty result
+     * @param play plays a seed, recording it into a result
+     * @param merge merges the result of the second half into the first, returning the merged result
+     */
+    SeedBatch(long from, long to, int size, Supplier<R> create, ObjLongConsumer<R> play, BinaryOperator<R> merge) {
+        this.from = from;
+        this.to = to;
+        this.size = size;
+        this.create = create;
+        this.play = play;
+        this.merge = merge;
+    }
+
+    @Override
+    protected R compute() {
+        if (to - from <= size) {
+            var result = create.get();
+            for (long seed = from; seed < to; seed++) {
+                play.accept(result, seed);
+            }
+            return result;
+        }
+
+        long middle = from + (to - from) / 2;
+        var left = new SeedBatch<>(from, middle, size, create, play, merge);
+        left.fork();
+        var right = new SeedBatch<>(middle, to, size, create, play, merge).compute();
+        return merge.apply(left.join(), right);
+    }
+}
@@ -0,0 +1,101 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.CoordinateSet;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.SeededPieceSource;
+
+/**
+ * A Simulation plays headless games on the GameEngine with a Policy and records their outcomes. Every game is seeded,
+ * so the same seed always plays the same game.
+ *
+ * No time passes in a simulated game. Every piece placed counts as a fixed thinking time, and whenever the policy has
+ * no move the game loop times out, costing a life and the current timer delay.
+ *
+ * Batches of games are split across a ForkJoinPool, each worker recording into its own SimulationResult, so a run
+ * scales with the number of cores.
+ */
+public class Simulation {
+
+    /**
+     * The number of games a worker plays without splitting further
+     */
+    private static final int BATCH = 64;
+
+    private final int cols;
+    private final int rows;
+    private final LongFunction<Policy> policyFactory;
+    private final int maxPieces;
+    private final long moveTime;
+
+    /**
+     * Create a new simulation
+     * @param cols number of columns of the grid
+     * @param rows number of rows of the grid
+     * @param policyFactory creates the policy for every game, given its seed
+     * @param maxPieces the number of pieces after which a game is stopped, so a policy that never loses still ends
+     * @param moveTime the simulated time every placed piece takes, in milliseconds
+     */
+    public Simulation(int cols, int rows, LongFunction<Policy> policyFactory, int maxPieces, long moveTime) {
+        this.cols = cols;
+        this.rows = rows;
+        this.policyFactory = policyFactory;
+        this.maxPieces = maxPieces;
+        this.moveTime = moveTime;
+    }
+
+    /**
+     * Play a range of seeded games in parallel
+     * @param pool the pool to play on
+     * @param firstSeed the seed of the first game, every following game using the next seed
+     * @param games the number of games to play
+     * @return the distributions over every game
+     */
+    public SimulationResult run(ForkJoinPool pool, long firstSeed, long games) {
+        return pool.invoke(new SeedBatch<>(firstSeed, firstSeed + games, BATCH, SimulationResult::new,
+            (result, seed) -> result.record(playGame(seed)), SimulationResult::merge));
+    }
+
+    /**
+     * Play one game to the end
+     * @param seed the seed of the pieces and the policy
+     * @return the outcome of the game
+     */
+    public GameResult playGame(long seed) {
+        var engine = new GameEngine(cols, rows, new SeededPieceSource(seed));
+        var policy = policyFactory.apply(seed);
+        var lines = new LineCounter();
+        engine.addListener(lines);
+        engine.start();
+
+        long time = 0;
+        int pieces = 0;
+        while (!engine.isGameOver() && pieces < maxPieces) {
+            var move = policy.chooseMove(engine);
+            if (move != null && move.apply(engine)) {
+                pieces++;
+                time += moveTime;
+            } else {
+                time += engine.getTimerDelay();
+                engine.loseLife();
+            }
+        }
+        return new GameResult(seed, engine.getScore(), engine.getLevel(), lines.lines, pieces, time);
+    }
+
+    /**
+     * Counts the lines cleared in a game
+     */
+    private static class LineCounter implements GameEventListener {
+
+        private int lines;
+
+        @Override
+        public void linesCleared(int cleared, CoordinateSet blocks) {
+            lines += cleared;
+        }
+    }
+}
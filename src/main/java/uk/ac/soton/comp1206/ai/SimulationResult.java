@@ -0,0 +1,104 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The distributions recorded over many simulated games. Results of separate batches are merged into one.
+ */
+public class SimulationResult {
+
+    private final Histogram score = new Histogram();
+    private final Histogram level = new Histogram();
+
+    /**
+     * Lines cleared per piece placed, recorded in thousandths
+     */
+    private final Histogram linesPerPiece = new Histogram(1000);
+
+    private final Histogram pieces = new Histogram();
+
+    /**
+     * Simulated game length, recorded in milliseconds and shown in seconds
+     */
+    private final Histogram time = new Histogram(1000);
+
+    /**
+     * Record the result of one game
+     * @param result the result to record
+     */
+    public void record(GameResult result) {
+        score.record(result.getScore());
+        level.record(result.getLevel());
+        linesPerPiece.record(result.getPieces() == 0 ? 0 : result.getLines() * 1000L / result.getPieces());
+        pieces.record(result.getPieces());
+        time.record(result.getTime());
+    }
+
+    /**
+     * Add every game of another result to this one
+     * @param other the result to merge in
+     * @return this result
+     */
+    public SimulationResult merge(SimulationResult other) {
+        score.merge(other.score);
+        level.merge(other.level);
+        linesPerPiece.merge(other.linesPerPiece);
+        pieces.merge(other.pieces);
+        time.merge(other.time);
+        return this;
+    }
+
+    /**
+     * @return the number of games recorded
+     */
+    public long getGames() {
+        return score.getCount();
+    }
+
+    /**
+     * @return the distribution of final scores
+     */
+    public Histogram getScore() {
+        return score;
+    }
+
+    /**
+     * @return the distribution of levels reached
+     */
+    public Histogram getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the distribution of lines cleared per piece placed
+     */
+    public Histogram getLinesPerPiece() {
+        return linesPerPiece;
+    }
+
+    /**
+     * @return the distribution of pieces placed per game
+     */
+    public Histogram getPieces() {
+        return pieces;
+    }
+
+    /**
+     * @return the distribution of simulated game lengths in seconds
+     */
+    public Histogram getTime() {
+        return time;
+    }
+
+    /**
+     * Return a summary of every distribution
+     * @return one line per distribution
+     */
+    @Override
+    public String toString() {
+        return "games:           " + getGames() + "\n"
+            + "score:           " + score + "\n"
+            + "level:           " + level + "\n"
+            + "lines per piece: " + linesPerPiece + "\n"
+            + "pieces:          " + pieces + "\n"
+            + "length (s):      " + time;
+    }
+}
@@ -0,0 +1,239 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A SurvivabilityTable holds, for every occupancy of a small grid, how many of the 15 pieces can be played on it in any
+ * rotation. A board where none can be played is dead. Looking a board up is a single read, so game over detection,
+ * hints and search can use it instead of trying every placement.
+ *
+ * The table is generated offline by {@link #generate(int, int, Path, ForkJoinPool)} and stored with one 4 bit count
+ * per board, 16 MiB for the 5x5 grid. At runtime the file is memory mapped, so it is paged in by the operating system
+ * as it is used rather than read onto the heap. Tables are looked for in the directory given by the
+ * {@value #DIRECTORY_PROPERTY} system property, or the working directory, the first time a grid size is asked for.
+ *
+ * The file starts with a 16 byte header: the magic number, the format version, the number of columns and the number of
+ * rows, as big endian ints. The count of the board with occupancy b (bit y * cols + x set for every filled block) is
+ * then the low 4 bits of byte b / 2 when b is even, and the high 4 bits when b is odd.
+ */
+public class SurvivabilityTable {
+
+    private static final Logger logger = LogManager.getLogger(SurvivabilityTable.class);
+
+    /**
+     * The system property naming the directory tables are loaded from
+     */
+    public static final String DIRECTORY_PROPERTY = "tetrecs.tables";
+
+    /**
+     * The largest grid a table can be generated for. Generating needs 2 bytes per board.
+     */
+    public static final int MAX_BLOCKS = 28;
+
+    private static final int MAGIC = 0x54535256;
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+
+    /**
+     * The tables loaded so far, or empty when there is no file for a grid size
+     */
+    private static final ConcurrentHashMap<Integer, Optional<SurvivabilityTable>> TABLES = new ConcurrentHashMap<>();
+
+    private final int cols;
+    private final int rows;
+    private final MappedByteBuffer counts;
+
+    /**
+     * Create a table over mapped counts
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param counts the mapped counts, after the header
+     */
+    private SurvivabilityTable(int cols, int rows, MappedByteBuffer counts) {
+        this.cols = cols;
+        this.rows = rows;
+        this.counts = counts;
+    }
+
+    /**
+     * Get the table for a grid size, mapping its file the first time it is asked for
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the table, or null if there is no table file for the size or the file is for a different size
+     */
+    public static SurvivabilityTable forSize(int cols, int rows) {
+        if (cols * rows > MAX_BLOCKS) return null;
+        return TABLES.computeIfAbsent(cols << 16 | rows, key -> {
+            var path = Paths.get(System.getProperty(DIRECTORY_PROPERTY, "."), fileName(cols, rows));
+            if (!Files.exists(path)) {
+                logger.info("No survivability table at {}", path);
+                return Optional.empty();
+            }
+            try {
+                var table = open(path);
+                if (table.cols != cols || table.rows != rows) {
+                    logger.error("{} holds a table for {} x {}, not {} x {}", path, table.cols, table.rows, cols, rows);
+                    return Optional.empty();
+                }
+                return Optional.of(table);
+            } catch (IOException e) {
+                logger.error("Unable to load survivability table: " + e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Get the file name of the table for a grid size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the file name
+     */
+    public static String fileName(int cols, int rows) {
+        return "survivability-" + cols + "x" + rows + ".bin";
+    }
+
+    /**
+     * Map a table file
+     * @param path the file
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    public static SurvivabilityTable open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //Keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(path + " is not a survivability table");
+            }
+            int cols = header.getInt();
+            int rows = header.getInt();
+            long size = 1L << (cols * rows - 1);
+            if (cols * rows > MAX_BLOCKS || channel.size() != HEADER + size) {
+                throw new IOException(path + " has the wrong size for a " + cols + " x " + rows + " table");
+            }
+
+            logger.info("Mapping survivability table for {} x {}", cols, rows);
+            return new SurvivabilityTable(cols, rows, channel.map(FileChannel.MapMode.READ_ONLY, HEADER, size));
+        }
+    }
+
+    /**
+     * Count the pieces that can be played on a board
+     * @param board the occupancy, with bit y * cols + x set for every filled block
+     * @return the number of pieces, from 0 to 15, that fit in at least one rotation
+     */
+    public int countPlayable(long board) {
+        int pair = counts.get((int) (board >>> 1));
+        return (pair >>> ((board & 1) << 2)) & 0xf;
+    }
+
+    /**
+     * Check whether no piece can be played on a board
+     * @param board the occupancy, with bit y * cols + x set for every filled block
+     * @return true if the board is dead
+     */
+    public boolean isDead(long board) {
+        return countPlayable(board) == 0;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Generate the table for a grid size and write it to a file.
+     *
+     * For every set of empty blocks, the pieces with a placement inside the set are found by marking every placement
+     * mask, then spreading each mark to every superset of its mask one block at a time. Each of those passes is split
+     * across the pool. The count of a board is then the number of pieces marked for its empty blocks.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param path the file to write
+     * @param pool the pool to generate on
+     * @throws IOException if the file cannot be written
+     */
+    public static void generate(int cols, int rows, Path path, ForkJoinPool pool) throws IOException {
+        int blocks = cols * rows;
+        if (blocks > MAX_BLOCKS || blocks < 2) {
+            throw new IllegalArgumentException("Cannot generate a table for " + cols + " x " + rows);
+        }
+        var bitboard = Bitboard.forSize(cols, rows);
+        int states = 1 << blocks;
+        int full = states - 1;
+
+        //Bit p of fits[s] is set when piece p has a placement inside the empty blocks s
+        var fits = new short[states];
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            for (long mask : bitboard.getMasks(shape)) {
+                fits[(int) mask] |= 1 << shape;
+            }
+        }
+
+        int chunk = Math.max(1 << 12, states / (pool.getParallelism() * 16));
+        int chunks = (states + chunk - 1) / chunk;
+        for (int block = 0; block < blocks; block++) {
+            int bit = 1 << block;
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+                int end = Math.min(states, (c + 1) * chunk);
+                for (int s = c * chunk; s < end; s++) {
+                    //Sets without this block are only read in this pass, never written
+                    if ((s & bit) != 0) fits[s] |= fits[s ^ bit];
+                }
+            })).join();
+        }
+
+        var data = new byte[states >>> 1];
+        int pairChunk = Math.max(1, chunk >>> 1);
+        int pairChunks = (data.length + pairChunk - 1) / pairChunk;
+        pool.submit(() -> IntStream.range(0, pairChunks).parallel().forEach(c -> {
+            int end = Math.min(data.length, (c + 1) * pairChunk);
+            for (int pair = c * pairChunk; pair < end; pair++) {
+                int even = pair << 1;
+                int low = Integer.bitCount(fits[full & ~even] & 0xffff);
+                int high = Integer.bitCount(fits[full & ~(even | 1)] & 0xffff);
+                data[pair] = (byte) (high << 4 | low);
+            }
+        })).join();
+
+        var header = ByteBuffer.allocate(HEADER).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(cols).putInt(rows).flip();
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            var body = ByteBuffer.wrap(data);
+            while (body.hasRemaining()) channel.write(body);
+        }
+        logger.info("Wrote survivability table for {} x {} to {}", cols, rows, path);
+    }
+}
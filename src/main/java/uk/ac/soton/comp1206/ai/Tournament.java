@@ -0,0 +1,70 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+/**
+ * A Tournament plays bots head to head. In every match each bot plays its own game from the same seed, so every bot
+ * is dealt the same pieces in the same order, as every player of a MultiplayerGame is dealt the same pieces by the
+ * server. Comparing scores on equal pieces removes the luck of the draw from the difference between two bots, so far
+ * fewer matches are needed to tell them apart than comparing separate simulations.
+ *
+ * Matches are split across a ForkJoinPool in batches like a Simulation. Every batch records into a TournamentResult of
+ * fixed size rather than keeping the scores of its matches, so memory does not grow with the number of matches.
+ */
+public class Tournament {
+
+    /**
+     * The number of matches a worker plays without splitting further
+     */
+    private static final int BATCH = 16;
+
+    private final String[] names;
+    private final Simulation[] bots;
+
+    /**
+     * Create a new tournament
+     * @param cols number of columns of the grid
+     * @param rows number of rows of the grid
+     * @param names the name of every bot
+     * @param policyFactories creates the policy of every bot for every match, given its seed
+     * @param maxPieces the number of pieces after which a game is stopped
+     */
+    public Tournament(int cols, int rows, List<String> names, List<LongFunction<Policy>> policyFactories,
+            int maxPieces) {
+        if (names.size() != policyFactories.size() || names.size() < 2) {
+            throw new IllegalArgumentException("Need a name and a policy for each of at least two bots");
+        }
+        this.names = names.toArray(new String[0]);
+        this.bots = new Simulation[names.size()];
+        for (int i = 0; i < bots.length; i++) {
+            bots[i] = new Simulation(cols, rows, policyFactories.get(i), maxPieces, 1000);
+        }
+    }
+
+    /**
+     * Play a range of seeded matches in parallel
+     * @param pool the pool to play on
+     * @param firstSeed the seed of the first match, every following match using the next seed
+     * @param matches the number of matches to play
+     * @return the outcome of every match
+     */
+    public TournamentResult run(ForkJoinPool pool, long firstSeed, long matches) {
+        return pool.invoke(new SeedBatch<>(firstSeed, firstSeed + matches, BATCH, () -> new TournamentResult(names),
+            (result, seed) -> result.record(playMatch(seed)), TournamentResult::merge));
+    }
+
+    /**
+     * Play one match
+     * @param seed the seed of the pieces and the policies
+     * @return the score of every bot
+     */
+    public int[] playMatch(long seed) {
+        var scores = new int[bots.length];
+        for (int i = 0; i < bots.length; i++) {
+            scores[i] = bots[i].playGame(seed).getScore();
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,201 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The outcome of many tournament matches, in a fixed amount of memory whatever the number of matches. For every bot it
+ * records the distribution of its scores and its share of match wins, and for every pair of bots how often the first
+ * beat the second and by how much.
+ *
+ * Results are not thread safe, but two can be merged, so every worker can record into its own.
+ */
+public class TournamentResult {
+
+    /**
+     * The z value of a 95% confidence interval
+     */
+    private static final double Z = 1.96;
+
+    private final String[] names;
+    private final int bots;
+    private long matches;
+
+    private final Histogram[] scores;
+
+    /**
+     * Match wins of every bot, with a tie shared between the bots tied on the best score
+     */
+    private final double[] wins;
+
+    /**
+     * For every pair i, j, stored at i * bots + j: the matches i won, drew and the sums of i's score minus j's
+     */
+    private final long[] pairWins;
+    private final long[] pairDraws;
+    private final double[] deltaSums;
+    private final double[] deltaSquares;
+
+    /**
+     * Create a new empty result
+     * @param names the name of every bot
+     */
+    public TournamentResult(String[] names) {
+        this.names = names.clone();
+        this.bots = names.length;
+        this.scores = new Histogram[bots];
+        for (int i = 0; i < bots; i++) {
+            scores[i] = new Histogram();
+        }
+        this.wins = new double[bots];
+        this.pairWins = new long[bots * bots];
+        this.pairDraws = new long[bots * bots];
+        this.deltaSums = new double[bots * bots];
+        this.deltaSquares = new double[bots * bots];
+    }
+
+    /**
+     * Record the scores of one match
+     * @param matchScores the score of every bot
+     */
+    public void record(int[] matchScores) {
+        matches++;
+        int best = Integer.MIN_VALUE;
+        int winners = 0;
+        for (int i = 0; i < bots; i++) {
+            scores[i].record(matchScores[i]);
+            if (matchScores[i] > best) {
+                best = matchScores[i];
+                winners = 1;
+            } else if (matchScores[i] == best) {
+                winners++;
+            }
+        }
+        for (int i = 0; i < bots; i++) {
+            if (matchScores[i] == best) wins[i] += 1.0 / winners;
+
+            for (int j = 0; j < bots; j++) {
+                if (i == j) continue;
+                int pair = i * bots + j;
+                double delta = matchScores[i] - matchScores[j];
+                if (delta > 0) pairWins[pair]++;
+                else if (delta == 0) pairDraws[pair]++;
+                deltaSums[pair] += delta;
+                deltaSquares[pair] += delta * delta;
+            }
+        }
+    }
+
+    /**
+     * Add every match of another result to this one
+     * @param other the result to merge in, for the same bots
+     * @return this result
+     */
+    public TournamentResult merge(TournamentResult other) {
+        matches += other.matches;
+        for (int i = 0; i < bots; i++) {
+            scores[i].merge(other.scores[i]);
+            wins[i] += other.wins[i];
+        }
+        for (int pair = 0; pair < bots * bots; pair++) {
+            pairWins[pair] += other.pairWins[pair];
+            pairDraws[pair] += other.pairDraws[pair];
+            deltaSums[pair] += other.deltaSums[pair];
+            deltaSquares[pair] += other.deltaSquares[pair];
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of matches recorded
+     */
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * Get the distribution of a bot's scores
+     * @param bot the bot
+     * @return the scores
+     */
+    public Histogram getScore(int bot) {
+        return scores[bot];
+    }
+
+    /**
+     * Get the fraction of matches a bot won outright, counting a tie between k bots as 1/k of a win for each
+     * @param bot the bot
+     * @return the win rate
+     */
+    public double getWinRate(int bot) {
+        return matches == 0 ? 0 : wins[bot] / matches;
+    }
+
+    /**
+     * Get how often one bot beat another, counting a draw as half a win
+     * @param bot the bot
+     * @param opponent the other bot
+     * @return the win rate of the bot against the other
+     */
+    public double getWinRate(int bot, int opponent) {
+        int pair = bot * bots + opponent;
+        return matches == 0 ? 0 : (pairWins[pair] + pairDraws[pair] / 2.0) / matches;
+    }
+
+    /**
+     * Get the 95% Wilson score interval of how often one bot beats another
+     * @param bot the bot
+     * @param opponent the other bot
+     * @return the lower and upper bound of the win rate
+     */
+    public double[] getWinRateInterval(int bot, int opponent) {
+        if (matches == 0) return new double[] { 0, 1 };
+        double p = getWinRate(bot, opponent);
+        double n = matches;
+        double centre = (p + Z * Z / (2 * n)) / (1 + Z * Z / n);
+        double half = Z / (1 + Z * Z / n) * Math.sqrt(p * (1 - p) / n + Z * Z / (4 * n * n));
+        return new double[] { centre - half, centre + half };
+    }
+
+    /**
+     * Get the mean of one bot's score minus another's, over matches on the same pieces
+     * @param bot the bot
+     * @param opponent the other bot
+     * @return the mean difference
+     */
+    public double getMeanDelta(int bot, int opponent) {
+        return matches == 0 ? 0 : deltaSums[bot * bots + opponent] / matches;
+    }
+
+    /**
+     * Get half the width of the 95% confidence interval of the mean score difference
+     * @param bot the bot
+     * @param opponent the other bot
+     * @return the distance from the mean to either bound
+     */
+    public double getDeltaInterval(int bot, int opponent) {
+        if (matches < 2) return Double.POSITIVE_INFINITY;
+        int pair = bot * bots + opponent;
+        double mean = deltaSums[pair] / matches;
+        double variance = Math.max(0, (deltaSquares[pair] - mean * deltaSums[pair]) / (matches - 1));
+        return Z * Math.sqrt(variance / matches);
+    }
+
+    /**
+     * Return a summary of every bot and every pair of bots
+     * @return one line per bot, then one line per pair
+     */
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("matches: " + matches + "\n");
+        for (int i = 0; i < bots; i++) {
+            builder.append(String.format("%-12s wins %5.1f%% | score %s%n", names[i], getWinRate(i) * 100, scores[i]));
+        }
+        for (int i = 0; i < bots; i++) {
+            for (int j = i + 1; j < bots; j++) {
+                var interval = getWinRateInterval(i, j);
+                builder.append(String.format("%s vs %s: %.1f%% [%.1f%%, %.1f%%], delta %+.0f +/- %.0f%n", names[i],
+                    names[j], getWinRate(i, j) * 100, interval[0] * 100, interval[1] * 100, getMeanDelta(i, j),
+                    getDeltaInterval(i, j)));
+            }
+        }
+        return builder.toString().trim();
+    }
+}
@@ -0,0 +1,267 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TranspositionTable remembers search results by the Zobrist key of the position they were found for, so a search
+ * can reuse work done earlier, by itself or by other threads. It has a fixed number of entries and never allocates
+ * after it is created.
+ *
+ * Entries are found by open addressing: a key can be stored in any of {@link #PROBES} slots starting at its home slot.
+ * When all of them are taken by other keys, the {@link Replacement} policy picks the slot to overwrite.
+ *
+ * The table is lock free. Every slot holds the entry's data and the key xored with the data, each in one atomic long.
+ * A reader only accepts a slot when the two xor back to the key it looks for, so a slot half written by another thread
+ * is seen as a miss rather than as a wrong result.
+ *
+ * An entry's data packs its value as a float, or as an int for values that must be exact, the depth it was searched
+ * to, the search generation it was stored in and some flags for the caller, for example whether the value is exact or
+ * a bound. Use {@link #getValue(long)} or {@link #getIntValue(long)}, {@link #getDepth(long)} and
+ * {@link #getFlags(long)} to unpack the data returned by {@link #probe(long)}.
+ */
+public class TranspositionTable {
+
+    /**
+     * The number of slots a key may be stored in
+     */
+    public static final int PROBES = 4;
+
+    /**
+     * How a slot is chosen when a new key finds every slot it may use taken
+     */
+    public enum Replacement {
+
+        /**
+         * Always overwrite the key's home slot
+         */
+        ALWAYS,
+
+        /**
+         * Overwrite the entry searched least deep
+         */
+        DEPTH,
+
+        /**
+         * Overwrite an entry from an older search first, then the entry searched least deep
+         */
+        AGED_DEPTH
+    }
+
+    //Set in every stored entry, so an empty slot never matches
+    private static final long VALID = 1L << 31;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray data;
+    private final int mask;
+    private final Replacement replacement;
+
+    /**
+     * The generation of the current search, stored in every new entry
+     */
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    /**
+     * Create a new table
+     * @param size the number of slots, a power of two
+     * @param replacement how to choose the slot to overwrite when a key's slots are full
+     */
+    public TranspositionTable(int size, Replacement replacement) {
+        if (size < PROBES || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Size must be a power of two of at least " + PROBES + ": " + size);
+        }
+        this.keys = new AtomicLongArray(size);
+        this.data = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.replacement = replacement;
+    }
+
+    /**
+     * Look a key up
+     * @param key the key
+     * @return the entry's data, or 0 if the key is not in the table
+     */
+    public long probe(long key) {
+        probes.increment();
+        int home = home(key);
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+            long stored = data.get(slot);
+            if (stored != 0 && (keys.get(slot) ^ stored) == key) {
+                hits.increment();
+                return stored;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store a search result
+     * @param key the key of the position
+     * @param value the value found
+     * @param depth the depth it was searched to, from 0 to 255
+     * @param flags up to 15 bits for the caller
+     */
+    public void store(long key, float value, int depth, int flags) {
+        storeBits(key, Float.floatToRawIntBits(value), depth, flags);
+    }
+
+    /**
+     * Store a search result whose value is a whole number, kept exactly
+     * @param key the key of the position
+     * @param value the value found
+     * @param depth the depth it was searched to, from 0 to 255
+     * @param flags up to 15 bits for the caller
+     */
+    public void storeInt(long key, int value, int depth, int flags) {
+        storeBits(key, value, depth, flags);
+    }
+
+    /**
+     * Store a search result with its value already packed into 32 bits
+     * @param key the key of the position
+     * @param bits the bits of the value
+     * @param depth the depth it was searched to, from 0 to 255
+     * @param flags up to 15 bits for the caller
+     */
+    private void storeBits(long key, int bits, int depth, int flags) {
+        long entry = (long) bits << 32 | VALID | (long) (flags & 0x7fff) << 16
+            | (long) (generation & 0xff) << 8 | (depth & 0xff);
+
+        int home = home(key);
+        int victim = home;
+        long victimScore = Long.MAX_VALUE;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+            long stored = data.get(slot);
+            if (stored == 0 || (keys.get(slot) ^ stored) == key) {
+                //An empty slot or the same key is always used
+                write(slot, key, entry);
+                return;
+            }
+            long score = score(stored);
+            if (score < victimScore) {
+                victimScore = score;
+                victim = slot;
+            }
+        }
+        overwrites.increment();
+        write(victim, key, entry);
+    }
+
+    /**
+     * Start a new search. Entries stored from now on are newer than every entry stored before.
+     */
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Empty the table. Must not be called while other threads use it.
+     */
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            data.set(slot, 0);
+            keys.set(slot, 0);
+        }
+    }
+
+    /**
+     * Write an entry to a slot
+     * @param slot the slot
+     * @param key the key
+     * @param entry the data
+     */
+    private void write(int slot, long key, long entry) {
+        keys.set(slot, key ^ entry);
+        data.set(slot, entry);
+    }
+
+    /**
+     * Rank an entry for replacement, lowest first
+     * @param stored the entry's data
+     * @return the rank
+     */
+    private long score(long stored) {
+        switch (replacement) {
+            case DEPTH:
+                return getDepth(stored);
+            case AGED_DEPTH:
+                int age = (generation - (int) (stored >>> 8)) & 0xff;
+                return (long) (age == 0 ? 1 : 0) << 8 | getDepth(stored);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get the home slot of a key
+     * @param key the key
+     * @return the slot
+     */
+    private int home(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Get the value of an entry
+     * @param entry the data returned by {@link #probe(long)}
+     * @return the value
+     */
+    public static float getValue(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    /**
+     * Get the value of an entry stored with {@link #storeInt}
+     * @param entry the data returned by {@link #probe(long)}
+     * @return the value
+     */
+    public static int getIntValue(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Get the depth of an entry
+     * @param entry the data returned by {@link #probe(long)}
+     * @return the depth it was searched to
+     */
+    public static int getDepth(long entry) {
+        return (int) entry & 0xff;
+    }
+
+    /**
+     * Get the flags of an entry
+     * @param entry the data returned by {@link #probe(long)}
+     * @return the flags it was stored with
+     */
+    public static int getFlags(long entry) {
+        return (int) (entry >>> 16) & 0x7fff;
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int getSize() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the fraction of lookups that found their key
+     */
+    public double getHitRate() {
+        long count = probes.sum();
+        return count == 0 ? 0 : (double) hits.sum() / count;
+    }
+
+    /**
+     * @return the number of entries that were overwritten by a different key
+     */
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+}
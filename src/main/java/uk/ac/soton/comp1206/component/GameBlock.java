@@ -98,6 +98,11 @@ public class GameBlock extends Canvas {
      */
     private Integer colour = null;
 
+    /**
+     * The rank of the hint shown on this block, or 0 if there is none
+     */
+    private int hint = 0;
+
     private AnimationTimer timer;
 
     /**
@@ -150,6 +155,7 @@ public class GameBlock extends Canvas {
         if (centre == true) {
             paintCentreCircle();
         }
+        paintHintOverlay();
     }
 
     /**
@@ -198,6 +204,41 @@ public class GameBlock extends Canvas {
         if (colour != null) {
             paintColor(colour);
         } else paintEmpty();
+        paintHintOverlay();
+    }
+
+    /**
+     * Show a hint on the game block. Better hints are painted stronger.
+     * @param rank the rank of the hint, 1 for the best
+     */
+    public void paintHint(int rank) {
+        if (hint != 0 && hint <= rank) return;
+        hint = rank;
+        paint();
+    }
+
+    /**
+     * Remove the hint shown on the game block
+     */
+    public void clearHint() {
+        if (hint == 0) return;
+        hint = 0;
+        paint();
+    }
+
+    /**
+     * Paint the hint overlay, if a hint is shown
+     */
+    private void paintHintOverlay() {
+        if (hint == 0) return;
+
+        var gc = getGraphicsContext2D();
+        double opacity = 0.6 / hint;
+        gc.setFill(Color.color(1, 1, 1, opacity * 0.5));
+        gc.fillRect(0, 0, width, height);
+        gc.setStroke(Color.color(1, 1, 1, opacity + 0.2));
+        gc.setLineWidth(3);
+        gc.strokeRect(2, 2, width - 4, height - 4);
     }
 
     /**
@@ -4,11 +4,14 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 
-import java.util.HashSet;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.Move;
 import uk.ac.soton.comp1206.event.BlockClickedListener;
+import uk.ac.soton.comp1206.game.CoordinateSet;
+import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 
 /**
@@ -189,9 +192,40 @@ public class GameBoard extends GridPane {
         }
     }
 
-    public void fadeOut(HashSet<GameBlockCoordinate> blocksToClear) {
-        for (GameBlockCoordinate gameBlockCoordinate : blocksToClear) {
-            getBlock(gameBlockCoordinate.getX(), gameBlockCoordinate.getY()).fadeOut();
+    /**
+     * Play the line clearing animation on the given blocks
+     * @param blocksToClear the blocks that were cleared
+     */
+    public void fadeOut(CoordinateSet blocksToClear) {
+        blocksToClear.forEach((x, y) -> getBlock(x, y).fadeOut());
+    }
+
+    /**
+     * Show placement hints, replacing any shown before
+     * @param shape the piece the hints are for
+     * @param hints the placements, best first
+     */
+    public void showHints(int shape, List<Move> hints) {
+        clearHints();
+        for (int rank = hints.size(); rank >= 1; rank--) {
+            var hint = hints.get(rank - 1);
+            var piece = GamePiece.createPiece(shape, hint.getRotation());
+            for (int cell = 0; cell < piece.getCellCount(); cell++) {
+                int x = hint.getX() + piece.getCellX(cell) - 1;
+                int y = hint.getY() + piece.getCellY(cell) - 1;
+                getBlock(x, y).paintHint(rank);
+            }
+        }
+    }
+
+    /**
+     * Remove every placement hint
+     */
+    public void clearHints() {
+        for (var column : blocks) {
+            for (var block : column) {
+                block.clearHint();
+            }
         }
     }
 
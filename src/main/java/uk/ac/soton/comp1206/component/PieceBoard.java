@@ -52,11 +52,7 @@ public class PieceBoard extends GameBoard implements PieceChangeListener {
      * Clear the piece board
      */
     public void cleanBoard() {
-        for (int i = 0; i < grid.getCols(); i++) {
-            for (int j = 0; j < grid.getRows(); j++) {
-                grid.set(i, j, 0);
-            }
-        }
+        grid.clear();
     }
 
     /**
@@ -0,0 +1,92 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.CoordinateSet;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * The game event listener is used for listening to everything that happens inside a GameEngine. Every event has an
+ * empty default, so a listener only needs to handle the events it cares about.
+ */
+public interface GameEventListener {
+
+    /**
+     * Handle a new game starting, with every counter reset and the first pieces drawn
+     */
+    public default void gameStarted() {}
+
+    /**
+     * Handle a piece being played on the grid
+     * @param piece the piece that was played
+     * @param x the x coordinate of the centre of the piece
+     * @param y the y coordinate of the centre of the piece
+     */
+    public default void piecePlaced(GamePiece piece, int x, int y) {}
+
+    /**
+     * Handle a piece that could not be played
+     * @param piece the piece that could not be played
+     * @param x the x coordinate of the centre of the piece
+     * @param y the y coordinate of the centre of the piece
+     */
+    public default void placementFailed(GamePiece piece, int x, int y) {}
+
+    /**
+     * Handle the current piece being rotated
+     * @param piece the rotated piece
+     */
+    public default void pieceRotated(GamePiece piece) {}
+
+    /**
+     * Handle the current and next pieces being swapped
+     */
+    public default void piecesSwapped() {}
+
+    /**
+     * Handle a change of the current piece
+     * @param piece the new current piece
+     */
+    public default void currentPieceChanged(GamePiece piece) {}
+
+    /**
+     * Handle a change of the next piece
+     * @param piece the new next piece
+     */
+    public default void nextPieceChanged(GamePiece piece) {}
+
+    /**
+     * Handle lines being cleared. The set is reused for the next clear, so it must be copied to be kept.
+     * @param lines the number of lines that were cleared
+     * @param blocks the set of blocks that were cleared
+     */
+    public default void linesCleared(int lines, CoordinateSet blocks) {}
+
+    /**
+     * Handle a change of the score
+     * @param score the new score
+     */
+    public default void scoreChanged(int score) {}
+
+    /**
+     * Handle a change of the level
+     * @param oldLevel the previous level
+     * @param level the new level
+     */
+    public default void levelChanged(int oldLevel, int level) {}
+
+    /**
+     * Handle a change of the multiplier
+     * @param multiplier the new multiplier
+     */
+    public default void multiplierChanged(int multiplier) {}
+
+    /**
+     * Handle a life being lost when the game loop timed out
+     * @param lives the remaining lives
+     */
+    public default void lifeLost(int lives) {}
+
+    /**
+     * Handle the game ending
+     */
+    public default void gameEnded() {}
+}
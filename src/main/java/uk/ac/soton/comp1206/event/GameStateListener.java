@@ -0,0 +1,14 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.GameState;
+
+/**
+ * The game state listener is used for listening to every new state of a game being shown in the UI
+ */
+public interface GameStateListener {
+    /**
+     * Handle a new state being shown. Called on the JavaFX thread once the grid and properties show it.
+     * @param state the state being shown
+     */
+    public void stateShown(GameState state);
+}
@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.event;
+
+import java.util.List;
+
+import uk.ac.soton.comp1206.ai.Move;
+import uk.ac.soton.comp1206.game.GameState;
+
+/**
+ * The hint listener is used for receiving the placements suggested by a HintEngine
+ */
+public interface HintListener {
+    /**
+     * Handle hints being found. Called on the thread of the hint engine's search.
+     * @param state the state the hints are for
+     * @param hints the suggested placements of the current piece, best first
+     */
+    public void hintsFound(GameState state, List<Move> hints);
+}
@@ -1,8 +1,6 @@
 package uk.ac.soton.comp1206.event;
 
-import java.util.HashSet;
-
-import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+import uk.ac.soton.comp1206.game.CoordinateSet;
 
 /**
  * The line cleared listener is used for listening to new lines being cleared
@@ -12,5 +10,5 @@ public interface LineClearedListener {
      * Run the line cleared animation
      * @param blocks the set of blocks to be cleared
      */
-    public void fadeOut(HashSet<GameBlockCoordinate> blocks);
+    public void fadeOut(CoordinateSet blocks);
 }
@@ -0,0 +1,223 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The CommandQueue runs commands submitted from any thread one at a time, in the order they were submitted, on an
+ * executor. At most one drain of a queue runs at a time, so the executor may be shared by many queues and have any
+ * number of threads. Everything that changes a game goes through its queue, so the game state only ever has one
+ * writer and no locking is needed.
+ *
+ * The queue is a fixed size ring buffer. Producers claim a slot with a compare and set on the tail and publish it by
+ * setting the slot's sequence number, so submitting never blocks or allocates. Whenever there are commands waiting and
+ * no drain is running, a drain is handed to the executor.
+ *
+ * The time between submitting a command and it starting to run is recorded, so the latency of the queue can be
+ * monitored.
+ */
+public class CommandQueue {
+
+    private static final Logger logger = LogManager.getLogger(CommandQueue.class);
+
+    /**
+     * The number of slots used when no capacity is given
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The executor the queue is drained on
+     */
+    private final Executor executor;
+
+    /**
+     * The command in every slot
+     */
+    private final Runnable[] commands;
+
+    /**
+     * The time every command was submitted at, in nanoseconds
+     */
+    private final long[] submittedAt;
+
+    /**
+     * The sequence number of every slot. A slot is free for the producer at position p when its sequence is p, and
+     * ready for the consumer when it is p + 1.
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * The position the next command is submitted to
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next command to run. Only used by the draining thread.
+     */
+    private long head;
+
+    /**
+     * Whether a drain has been handed to the executor and not finished yet
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final LongAdder rejected = new LongAdder();
+
+    //Only written by the draining thread
+    private volatile long applied;
+    private volatile long totalLatency;
+    private volatile long maxLatency;
+
+    /**
+     * Create a new queue with the default capacity, drained on the given executor
+     * @param executor the executor to run commands on
+     */
+    public CommandQueue(Executor executor) {
+        this(executor, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new queue drained on the given executor
+     * @param executor the executor to run commands on
+     * @param capacity the number of commands that can wait at once, a power of two
+     */
+    public CommandQueue(Executor executor, int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.executor = executor;
+        this.commands = new Runnable[capacity];
+        this.submittedAt = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Submit a command to be run after every command submitted before it. Can be called from any thread.
+     * @param command the command to run
+     * @return true if the command was queued, false if the queue was full
+     */
+    public boolean submit(Runnable command) {
+        long now = System.nanoTime();
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    commands[index] = command;
+                    submittedAt[index] = now;
+                    sequences.lazySet(index, position + 1);
+                    break;
+                }
+            } else if (difference < 0) {
+                //The consumer has not freed this slot yet, so the queue is full
+                rejected.increment();
+                logger.error("Command queue full, dropping command");
+                return false;
+            }
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * Hand a drain to the executor, unless one is already waiting or running
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                logger.error("Unable to run commands: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Run every waiting command. Runs on the executor.
+     */
+    private void drain() {
+        do {
+            Runnable command;
+            while ((command = poll()) != null) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    logger.error("Command failed", e);
+                }
+            }
+            scheduled.set(false);
+            //A command published after the last poll may have seen the drain still scheduled
+        } while (isReady() && scheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * Take the next command off the queue, recording how long it waited
+     * @return the next command, or null if there are none ready
+     */
+    private Runnable poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) return null;
+
+        var command = commands[index];
+        long latency = System.nanoTime() - submittedAt[index];
+        commands[index] = null;
+        sequences.lazySet(index, head + commands.length);
+        head++;
+
+        applied++;
+        totalLatency += latency;
+        if (latency > maxLatency) maxLatency = latency;
+        return command;
+    }
+
+    /**
+     * @return true if the next command has been published
+     */
+    private boolean isReady() {
+        return sequences.get((int) head & mask) == head + 1;
+    }
+
+    /**
+     * @return the number of commands that have been run
+     */
+    public long getAppliedCount() {
+        return applied;
+    }
+
+    /**
+     * @return the number of commands dropped because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the mean time from submitting a command to it starting to run, in nanoseconds
+     */
+    public long getMeanLatency() {
+        long count = applied;
+        return count == 0 ? 0 : totalLatency / count;
+    }
+
+    /**
+     * @return the longest time from submitting a command to it starting to run, in nanoseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+}
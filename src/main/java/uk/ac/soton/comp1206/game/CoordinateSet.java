@@ -0,0 +1,234 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+
+/**
+ * A set of block coordinates on a grid of a fixed size, stored as a bitset. The block at x, y is bit y * cols + x, so
+ * adding, checking and counting blocks never allocates or hashes.
+ *
+ * Coordinates can be iterated with {@link #forEach(CoordinateConsumer)}, or by index with {@link #nextIndex(int)},
+ * {@link #getX(int)} and {@link #getY(int)}.
+ */
+public class CoordinateSet {
+
+    /**
+     * Receives the coordinates of every block in a set
+     */
+    public interface CoordinateConsumer {
+
+        /**
+         * Handle one block of the set
+         * @param x column
+         * @param y row
+         */
+        public void accept(int x, int y);
+    }
+
+    /**
+     * The number of columns of the grid
+     */
+    private final int cols;
+
+    /**
+     * The number of rows of the grid
+     */
+    private final int rows;
+
+    /**
+     * The bits of every block in the set
+     */
+    private final long[] words;
+
+    /**
+     * Create a new empty set for a grid of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public CoordinateSet(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.words = new long[(cols * rows + 63) >>> 6];
+    }
+
+    /**
+     * Add a block to the set
+     * @param x column
+     * @param y row
+     */
+    public void add(int x, int y) {
+        int index = y * cols + x;
+        words[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Add several blocks of one row to the set
+     * @param y row
+     * @param mask a mask with bit x set for every column to add, for grids of at most 64 columns
+     */
+    public void addRow(int y, long mask) {
+        addWord(y, 0, mask);
+    }
+
+    /**
+     * Add up to 64 blocks of one row to the set
+     * @param y row
+     * @param word which 64 columns of the row the mask is for
+     * @param mask a mask with bit x % 64 set for every column x to add
+     */
+    public void addWord(int y, int word, long mask) {
+        int index = y * cols + (word << 6);
+        int shift = index & 63;
+        words[index >>> 6] |= mask << shift;
+        if (shift != 0 && (mask >>> (64 - shift)) != 0) {
+            words[(index >>> 6) + 1] |= mask >>> (64 - shift);
+        }
+    }
+
+    /**
+     * Remove a block from the set
+     * @param x column
+     * @param y row
+     */
+    public void remove(int x, int y) {
+        int index = y * cols + x;
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Check whether a block is in the set
+     * @param x column
+     * @param y row
+     * @return true if the block is in the set
+     */
+    public boolean contains(int x, int y) {
+        int index = y * cols + x;
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Add every block of another set of the same size to this set
+     * @param other the set to add
+     */
+    public void union(CoordinateSet other) {
+        if (other.cols != cols || other.rows != rows) {
+            throw new IllegalArgumentException("Sets are for different grid sizes");
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Remove every block from the set
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Get the number of blocks in the set
+     * @return number of blocks
+     */
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * Check whether the set is empty
+     * @return true if there are no blocks in the set
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Call the consumer with the coordinates of every block in the set, row by row
+     * @param consumer the consumer to call
+     */
+    public void forEach(CoordinateConsumer consumer) {
+        for (int i = 0; i < words.length; i++) {
+            for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+                int index = (i << 6) + Long.numberOfTrailingZeros(bits);
+                consumer.accept(index % cols, index / cols);
+            }
+        }
+    }
+
+    /**
+     * Find the index of the next block in the set
+     * @param from the index to start looking from
+     * @return the index of the next block at or after from, or -1 if there are none
+     */
+    public int nextIndex(int from) {
+        int word = from >>> 6;
+        if (word >= words.length) return -1;
+        long bits = words[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == words.length) return -1;
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Get the column of a block index
+     * @param index the index
+     * @return column
+     */
+    public int getX(int index) {
+        return index % cols;
+    }
+
+    /**
+     * Get the row of a block index
+     * @param index the index
+     * @return row
+     */
+    public int getY(int index) {
+        return index / cols;
+    }
+
+    /**
+     * Create a copy of this set
+     * @return a new set with the same blocks
+     */
+    public CoordinateSet copy() {
+        var copy = new CoordinateSet(cols, rows);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    /**
+     * Get the number of columns of the grid this set is for
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows of the grid this set is for
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Return a string representation of this set
+     * @return the coordinates of every block
+     */
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("CoordinateSet [");
+        forEach((x, y) -> builder.append(" (").append(x).append(", ").append(y).append(")"));
+        return builder.append(" ]").toString();
+    }
+}
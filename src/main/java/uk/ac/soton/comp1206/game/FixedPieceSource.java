@@ -0,0 +1,70 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A PieceSource playing back a fixed sequence of pieces, for tests, replays and puzzles.
+ */
+public class FixedPieceSource implements PieceSource {
+
+    /**
+     * The piece numbers to play back
+     */
+    private final int[] pieces;
+
+    /**
+     * Whether to start again from the first piece at the end of the sequence
+     */
+    private final boolean repeat;
+
+    /**
+     * The position of the next piece in the sequence
+     */
+    private int position;
+
+    /**
+     * Create a new source playing the given pieces once
+     * @param pieces the piece numbers
+     */
+    public FixedPieceSource(int... pieces) {
+        this(false, pieces);
+    }
+
+    /**
+     * Create a new source playing the given pieces
+     * @param repeat whether to start again from the first piece at the end of the sequence
+     * @param pieces the piece numbers
+     */
+    public FixedPieceSource(boolean repeat, int... pieces) {
+        for (int piece : pieces) {
+            if (piece < 0 || piece >= GamePiece.PIECES) {
+                throw new IndexOutOfBoundsException("No such piece: " + piece);
+            }
+        }
+        this.pieces = pieces.clone();
+        this.repeat = repeat;
+    }
+
+    /**
+     * Get the next piece of the sequence
+     * @return the piece number
+     */
+    @Override
+    public int nextPiece() {
+        if (position == pieces.length) {
+            if (!repeat || pieces.length == 0) {
+                throw new NoSuchElementException("No pieces left in the sequence");
+            }
+            position = 0;
+        }
+        return pieces[position++];
+    }
+
+    /**
+     * Get the number of pieces played back so far
+     * @return the position in the sequence
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -1,31 +1,45 @@
 package uk.ac.soton.comp1206.game;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import uk.ac.soton.comp1206.component.GameBlock;
-import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.Multimedia;
+import uk.ac.soton.comp1206.event.GameEventListener;
 import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.GameStateListener;
 import uk.ac.soton.comp1206.event.LineClearedListener;
 import uk.ac.soton.comp1206.event.PieceChangeListener;
 
 /**
- * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state
- * and to handle actions made by the player should take place inside this class.
+ * The Game class connects a GameEngine, which holds the rules and state of the TetrECS game, to the UI. It mirrors the
+ * engine's state into JavaFX properties, plays sounds and runs the game loop timer. Actions made by the player are
+ * passed on to the engine.
+ *
+ * The engine only ever runs on the game's own thread. Every action from the UI or the game loop timer is submitted to
+ * a CommandQueue and applied there in order. After each command, the latest GameState is copied into the grid shown
+ * by the UI, and the UI updates caused by the command are run, in a single {@link Platform#runLater(Runnable)}.
+ *
+ * Games do not own threads. Their command queues are drained on a small pool shared by every game, one drain of a game
+ * at a time, and their clocks are woken by the shared HashedWheelTimer. Hosting many games at once, for bots or
+ * simulations, takes no more threads than hosting one.
+ *
+ * The game loop is timed in ticks of the game's TickClock, so pausing the clock or changing its speed pauses or speeds
+ * up the game. A loop that runs out restarts from the tick it ran out at rather than from when the timeout happened to
+ * run, so the ticks a game loses its lives at only depend on the ticks its moves were made at.
  */
-public class Game {
+public class Game implements GameEventListener {
 
     private static final Logger logger = LogManager.getLogger(Game.class);
 
@@ -40,16 +54,18 @@ public class Game {
     protected final int cols;
 
     /**
-     * The grid model linked to the game
+     * The engine running the rules of this game
      */
-    protected final Grid grid;
+    protected final GameEngine engine;
 
-    private GamePiece currentPiece;
-    protected GamePiece nextPiece;
+    /**
+     * The grid shown by the UI. It is a copy of the engine's grid, only updated on the JavaFX thread.
+     */
+    protected final Grid grid;
 
     private SimpleIntegerProperty score = new SimpleIntegerProperty(0);
     private SimpleIntegerProperty level = new SimpleIntegerProperty(0);
-    private SimpleIntegerProperty lives = new SimpleIntegerProperty(3);
+    private SimpleIntegerProperty lives = new SimpleIntegerProperty(GameEngine.STARTING_LIVES);
     private SimpleIntegerProperty multiplier = new SimpleIntegerProperty(1);
     private SimpleIntegerProperty highScore = new SimpleIntegerProperty();
 
@@ -57,26 +73,98 @@ public class Game {
     protected PieceChangeListener nextPieceListener;
     private LineClearedListener lineClearedListener;
 
-    private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private ScheduledFuture<?> gameLoopJob;
+    /**
+     * The threads the command queues of every game are drained on
+     */
+    private static final ExecutorService gameThreads = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), new GameThreadFactory());
+
+    /**
+     * The queue every change to the engine goes through, drained on the game threads
+     */
+    private final CommandQueue commands = new CommandQueue(gameThreads);
+
+    /**
+     * The clock the game loop is timed by
+     */
+    protected final TickClock clock;
+
+    /**
+     * The game loop's timeout, rescheduled whenever the loop restarts
+     */
+    private final TickClock.Timeout gameLoopTimeout;
+
+    /**
+     * The tick the game loop last restarted at. Only changed on the game thread.
+     */
+    private volatile long gameLoopStart;
+
+    /**
+     * The tick the game loop runs out at, or -1 if it is stopped. A timeout that was already running when the loop was
+     * restarted finds the deadline moved on and is ignored. Only changed on the game thread.
+     */
+    private volatile long gameLoopDeadline = -1;
+
+    /**
+     * The UI updates caused by the command being run. Only used on the game thread.
+     */
+    private List<Runnable> uiUpdates = new ArrayList<>();
+
+    /**
+     * The tick of the last state copied to the UI
+     */
+    private long shownTick = -1;
+
+    /**
+     * The state shown in the UI. Only used on the JavaFX thread.
+     */
+    private GameState shownState;
 
     private GameLoopListener gameLoopListener;
+    private GameStateListener stateListener;
 
     private SimpleBooleanProperty gameOver = new SimpleBooleanProperty(false);
 
     private boolean multiplayer = false;
 
     /**
-     * Create a new game with the specified rows and columns. Creates a corresponding grid model.
+     * Create a new game with the specified rows and columns. Creates a corresponding engine and grid model.
      * @param cols number of columns
      * @param rows number of rows
      */
     public Game(int cols, int rows) {
+        this(cols, rows, new SeededPieceSource());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns, drawing its pieces from the given source. Creates a
+     * corresponding engine and grid model.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSource the source of every new piece
+     */
+    public Game(int cols, int rows, PieceSource pieceSource) {
+        this(cols, rows, pieceSource, new TickClock());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns, drawing its pieces from the given source and timing its
+     * game loop by the given clock. Creates a corresponding engine and grid model.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSource the source of every new piece
+     * @param clock the clock timing the game loop
+     */
+    public Game(int cols, int rows, PieceSource pieceSource, TickClock clock) {
         this.cols = cols;
         this.rows = rows;
+        this.clock = clock;
+        this.gameLoopTimeout = clock.newTimeout(() -> execute(this::gameLoopExpired));
 
-        //Create a new grid model to represent the game state
-        this.grid = new Grid(cols,rows);
+        //Create a new engine to run the rules and hold the game state
+        this.engine = new GameEngine(cols, rows, pieceSource);
+        this.grid = new Grid(cols, rows);
+        engine.addListener(this);
 
         if (this instanceof MultiplayerGame) {
             multiplayer = true;
@@ -96,11 +184,10 @@ public class Game {
      */
     public void initialiseGame() {
         logger.info("Initialising game");
-        gameOver.set(false);
-        gameLoopListener.gameLoop(getTimerDelay());
-        gameLoopJob = scheduler.schedule(this::gameLoop, getTimerDelay(), TimeUnit.MILLISECONDS);
-        currentPiece = spawnPiece();
-        nextPiece();
+        execute(() -> {
+            engine.start();
+            restartGameLoop();
+        });
     }
 
     /**
@@ -108,121 +195,118 @@ public class Game {
      * @param gameBlock the block that was clicked
      */
     public void blockClicked(GameBlock gameBlock) {
-        if (placeBlock(gameBlock.getX(), gameBlock.getY())) {
-            gameBlock.paintHover();
-        }
+        play(() -> {
+            if (place(gameBlock.getX(), gameBlock.getY())) {
+                ui(gameBlock::paintHover);
+            }
+        });
     }
     
     /**
-     * Place the game block on a specified x and y of the grid
+     * Place the current piece on a specified x and y of the grid. The piece is placed on the game thread.
+     * @param x the x coordinate to place the game block at
+     * @param y the y coordinate to place the game block at
+     */
+    public void placeBlock(int x, int y) {
+        play(() -> place(x, y));
+    }
+
+    /**
+     * Place the current piece, restarting the game loop if it was placed. Runs on the game thread.
      * @param x the x coordinate to place the game block at
      * @param y the y coordinate to place the game block at
      * @return true if the block was placed successfully
      */
-    public boolean placeBlock(int x, int y) {
-        if (grid.playPiece(currentPiece, x, y)) {
-            Multimedia.playAudio("place.wav");
+    protected boolean place(int x, int y) {
+        if (engine.place(x, y)) {
             restartGameLoop();
-            afterPiece();
-            setCurrentPiece();
-            nextPiece();
             if (multiplayer) {
                 ((MultiplayerGame)this).sendBoardChanged();
             }
-            return true;   
-        } else {
-            Multimedia.playAudio("fail.wav");
-            return false;
+            return true;
         }
+        return false;
     }
 
     /**
-     * Called after a piece was placed on the grid. Checks if there are any lines, and if any lines are found,
-     * add them to a set and then clear the line by setting the block's value to 0;
-     */
-    public void afterPiece() {
-        ArrayList<GameBlockCoordinate> vList = new ArrayList<GameBlockCoordinate>();
-        ArrayList<GameBlockCoordinate> hList = new ArrayList<GameBlockCoordinate>();
-        HashSet<GameBlockCoordinate> blocksSet = new HashSet<GameBlockCoordinate>();
-        int lines = 0;
-        
-        //Loop through the grid looking for any lines to be cleared
-        for (int i = 0; i < grid.getCols(); i++) {
-            for (int j = 0; j < grid.getRows(); j++) {
-                 if (grid.get(i, j) != 0) {
-                    GameBlockCoordinate blockToClear = new GameBlockCoordinate(i, j);
-                    vList.add(blockToClear);
-                 }
-                 if (grid.get(j, i) != 0) {
-                    GameBlockCoordinate blockToClear = new GameBlockCoordinate(j, i);
-                    hList.add(blockToClear);
-                }
-            }
-            //Check whether there is a vertical line
-            if (vList.size() == grid.getCols()) {
-                for (GameBlockCoordinate gameBlockCoordinate : vList) {
-                    blocksSet.add(gameBlockCoordinate);
-                }
-                lines++;
-            }
-            //Check whether there is a horizontal line
-            if (hList.size() == grid.getRows()) {
-                for (GameBlockCoordinate gameBlockCoordinate : hList) {
-                    blocksSet.add(gameBlockCoordinate);
-                }
-                lines++;
+     * Submit a command to be run on the game thread, then show its result in the UI
+     * @param command the command to run
+     */
+    protected void execute(Runnable command) {
+        commands.submit(() -> {
+            command.run();
+            showState();
+        });
+    }
+
+    /**
+     * Submit a move of the player's, such as placing, rotating or swapping a piece. Moves are dropped while the game's
+     * clock is paused, so nothing can be played while time stands still.
+     * @param move the move to run on the game thread
+     */
+    protected void play(Runnable move) {
+        execute(() -> {
+            if (clock.isPaused()) {
+                logger.info("Ignoring a move while the game is paused");
+                return;
             }
-            vList.clear();
-            hList.clear();
-        }
+            move.run();
+        });
+    }
 
-        //If there are any lines needed to be cleared
-        if (lines != 0) {
-            for (GameBlockCoordinate gameBlockCoordinate : blocksSet) {
-                logger.info("Clearing " + gameBlockCoordinate.getX() + ", " + gameBlockCoordinate.getY());
-                grid.set(gameBlockCoordinate.getX(), gameBlockCoordinate.getY(), 0);
+    /**
+     * Queue an update to the UI, to be run on the JavaFX thread once the current command has finished
+     * @param update the update to run
+     */
+    protected void ui(Runnable update) {
+        uiUpdates.add(update);
+    }
+
+    /**
+     * Copy the latest state into the UI's grid and run the queued UI updates, in one pass on the JavaFX thread
+     */
+    private void showState() {
+        var state = engine.getState();
+        if (state.getTick() == shownTick && uiUpdates.isEmpty()) return;
+
+        shownTick = state.getTick();
+        var updates = uiUpdates;
+        uiUpdates = new ArrayList<>();
+        Platform.runLater(() -> {
+            grid.load(state);
+            for (Runnable update : updates) {
+                update.run();
             }
-            lineClearedListener.fadeOut(blocksSet);
-            Multimedia.playAudio("clear.wav");
-            score(lines, blocksSet);
-        }
-        setMultiplier(lines);
+            boolean changed = shownState == null || shownState.getTick() != state.getTick();
+            shownState = state;
+            if (changed && stateListener != null) {
+                stateListener.stateShown(state);
+            }
+        });
     }
 
     /**
-     * Update the score of the player after clearing a line of blocks
-     * @param numberOfLines the number of lines that were cleared
-     * @param blocks the set of blocks that were cleared
+     * Get the state shown in the UI. Must be called on the JavaFX thread.
+     * @return the state, or the engine's first state if none has been shown yet
      */
-    public void score(int numberOfLines, HashSet<GameBlockCoordinate> blocks) {
-        logger.info("Updating the score");
-        score.set(score.get() + (numberOfLines * blocks.size() * 10 * multiplier.get()));
-        setLevel();
+    public GameState getShownState() {
+        return shownState != null ? shownState : engine.getState();
     }
 
     /**
-     * Update the level of the player. Up one level on every 1000 points
+     * Get the queue every change to the game goes through, for example to monitor its latency
+     * @return the command queue
      */
-    public void setLevel() {
-        logger.info("Updating the level");
-        var tempLevel = level.get();
-        level.set(Math.floorDiv(score.get(), 1000));
-        if (tempLevel < level.get()) {
-            Multimedia.playAudio("level.wav");
-        }
+    public CommandQueue getCommandQueue() {
+        return commands;
     }
 
     /**
-     * Update the multiplier on cleared lines
-     * @param lines the number of lines that were cleared
+     * Get the engine running the rules of this game
+     * @return the game engine
      */
-    public void setMultiplier(int lines) {
-        logger.info("Updating the multiplier");
-        if (lines != 0) {
-            multiplier.set(multiplier.get() + 1);
-        } else {
-            multiplier.set(1);
-        }
+    public GameEngine getEngine() {
+        return engine;
     }
 
     /**
@@ -302,28 +386,28 @@ public class Game {
      * @return get the score as an int
      */
     public int getScore() {
-        return score.get();
+        return engine.getState().getScore();
     }
 
     /**
      * @return get the level as an int
      */
     public int getLevel() {
-        return level.get();
+        return engine.getState().getLevel();
     }
 
     /**
      * @return get the lives as an int
      */
     public int getLives() {
-        return lives.get();
+        return engine.getState().getLives();
     }
 
     /**
      * @return get the multiplier as an int
      */
     public int getMultiplier() {
-        return multiplier.get();
+        return engine.getState().getMultiplier();
     }
 
     /**
@@ -366,46 +450,25 @@ public class Game {
     }
 
     /**
-     * Set the current piece to the next piece
-     */
-    public void setCurrentPiece() {
-        currentPiece = nextPiece;
-        currentPieceListener.updatePiece(currentPiece);
-    }
-
-    /**
-     * Generate a new game piece
-     * @return the new game piece
-     */
-    public GamePiece spawnPiece() {
-        logger.info("Creating a new game piece");
-        GamePiece piece = GamePiece.createPiece(new Random().nextInt(15));
-        currentPieceListener.updatePiece(piece);
-        return piece;
-    }
-
-    /**
-     * Creates a next piece to be played after the current piece has been played
+     * Sets the game state listener
+     * @param listener the listener called whenever a new state is shown
      */
-    public void nextPiece() {
-        logger.info("Generating next piece");
-        nextPiece = GamePiece.createPiece(new Random().nextInt(15));
-
-        nextPieceListener.updatePiece(nextPiece);
+    public void setStateListener(GameStateListener listener) {
+        stateListener = listener;
     }
 
     /**
      * @return the current game piece
      */
     public GamePiece getCurrentPiece() {
-        return currentPiece;
+        return engine.getState().getCurrentPiece();
     }
 
     /**
      * @return the next game piece
      */
     public GamePiece getNextPiece() {
-        return nextPiece;
+        return engine.getState().getNextPiece();
     }
 
     /**
@@ -413,68 +476,235 @@ public class Game {
      * @param rotations the number of rotations to be performed
      */
     public void rotateCurrentPiece (int rotations) {
-        logger.info("Rotating " + currentPiece.toString());
-        Multimedia.playAudio("rotate.wav");
-        currentPiece.rotate(rotations);
-        currentPieceListener.updatePiece(currentPiece);
+        play(() -> {
+            logger.info("Rotating " + engine.getCurrentPiece().toString());
+            engine.rotate(rotations);
+        });
     }
 
     /**
      * Swap the current and next pieces
      */
     public void swapCurrentPiece () {
-        Multimedia.playAudio("rotate.wav");
-        logger.info("Swapping " + currentPiece.toString() + " with " + nextPiece.toString());
-        var temp = nextPiece;
-        nextPiece = currentPiece;
-        currentPiece = temp;
-        currentPieceListener.updatePiece(currentPiece);
-        nextPieceListener.updatePiece(nextPiece);
+        play(() -> {
+            logger.info("Swapping " + engine.getCurrentPiece().toString() + " with " + engine.getNextPiece().toString());
+            engine.swap();
+        });
     }
 
     /**
      * @return the current game loop time
      */
     public int getTimerDelay() {
-        return Math.max(2500, (12000 - 500 * getLevel())); 
+        return engine.getTimerDelay();
     }
 
     /**
-     * When executed, generate a new piece and lower the lives by 1. If the lives are 0, the game ends
+     * @return the clock the game loop is timed by
      */
-    public void gameLoop() {
-        logger.info("Executing game loop");
-        if (lives.get() > 0) {
-            Multimedia.playAudio("lifelose.wav");
-            lives.set(lives.get() - 1);
-            multiplier.set(1);
-        } else {
-            Multimedia.playAudio("transition.wav");
-            if (multiplayer) {
-                ((MultiplayerGame)this).sendCommunication("DIE");
-            }
-            gameOver.set(true);
-            return;
-        }
-        setCurrentPiece();
-        nextPiece();
-        restartGameLoop();
+    public TickClock getClock() {
+        return clock;
+    }
 
+    /**
+     * @return how much of the game loop's time has passed, from 0 when it restarts to 1 when it runs out, or 0 if it
+     * is stopped
+     */
+    public double getGameLoopProgress() {
+        long start = gameLoopStart;
+        long deadline = gameLoopDeadline;
+        if (deadline <= start) return 0;
+        return Math.min(1, Math.max(0, (double) (clock.getTick() - start) / (deadline - start)));
     }
 
     /**
      * Stop the game loop from running
      */
     public void shutdownGameLoop() {
-        gameLoopJob.cancel(false);
+        execute(() -> {
+            gameLoopDeadline = -1;
+            gameLoopTimeout.cancel();
+            logger.info("Commands applied: {}, mean latency {} us, max latency {} us", commands.getAppliedCount(),
+                commands.getMeanLatency() / 1000, commands.getMaxLatency() / 1000);
+        });
     }
 
     /**
-     * Restart the game loop
+     * Restart the game loop from the current tick. Runs on the game thread.
      */
     public void restartGameLoop() {
-        gameLoopJob.cancel(false);
-        gameLoopListener.gameLoop(getTimerDelay());
-        gameLoopJob = scheduler.schedule(this::gameLoop, getTimerDelay(), TimeUnit.MILLISECONDS);
+        restartGameLoop(clock.getTick());
+    }
+
+    /**
+     * Restart the game loop from a tick. When neither piece can be played there is nothing to wait for, so the loop
+     * runs out straight away. Runs on the game thread.
+     * @param start the tick the loop restarts at
+     */
+    protected void restartGameLoop(long start) {
+        var delay = engine.hasMoves() ? engine.getTimerDelay() : 0;
+        ui(() -> gameLoopListener.gameLoop(delay));
+        gameLoopStart = start;
+        gameLoopDeadline = start + TickClock.toTicks(delay);
+        gameLoopTimeout.scheduleAt(gameLoopDeadline);
+    }
+
+    /**
+     * If the game loop has run out, lose a life, move on to the next piece and restart the loop from the tick it ran
+     * out at. If there are no lives left, the game ends. This is the only way the loop loses a life. Runs on the game
+     * thread.
+     */
+    private void gameLoopExpired() {
+        //Ignore a timeout that was already waiting when the loop was restarted or stopped
+        long deadline = gameLoopDeadline;
+        if (deadline < 0 || clock.getTick() < deadline) return;
+        logger.info("Executing game loop");
+        if (engine.loseLife()) {
+            restartGameLoop(deadline);
+        }
+    }
+
+    /**
+     * Creates the shared game threads
+     */
+    private static class GameThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "Game thread " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Sync every property with the engine when a new game starts
+     */
+    @Override
+    public void gameStarted() {
+        var state = engine.getState();
+        ui(() -> {
+            gameOver.set(false);
+            score.set(state.getScore());
+            level.set(state.getLevel());
+            lives.set(state.getLives());
+            multiplier.set(state.getMultiplier());
+        });
+    }
+
+    /**
+     * Play the sound for a placed piece
+     */
+    @Override
+    public void piecePlaced(GamePiece piece, int x, int y) {
+        ui(() -> Multimedia.playAudio("place.wav"));
+    }
+
+    /**
+     * Play the sound for a piece that could not be placed
+     */
+    @Override
+    public void placementFailed(GamePiece piece, int x, int y) {
+        ui(() -> Multimedia.playAudio("fail.wav"));
+    }
+
+    /**
+     * Play the sound for a rotated piece
+     */
+    @Override
+    public void pieceRotated(GamePiece piece) {
+        ui(() -> Multimedia.playAudio("rotate.wav"));
+    }
+
+    /**
+     * Play the sound for swapped pieces
+     */
+    @Override
+    public void piecesSwapped() {
+        ui(() -> Multimedia.playAudio("rotate.wav"));
+    }
+
+    /**
+     * Display the new current piece
+     */
+    @Override
+    public void currentPieceChanged(GamePiece piece) {
+        ui(() -> currentPieceListener.updatePiece(piece));
+    }
+
+    /**
+     * Display the new next piece
+     */
+    @Override
+    public void nextPieceChanged(GamePiece piece) {
+        ui(() -> nextPieceListener.updatePiece(piece));
+    }
+
+    /**
+     * Animate the cleared blocks and play the clearing sound
+     */
+    @Override
+    public void linesCleared(int lines, CoordinateSet blocks) {
+        var cleared = blocks.copy();
+        ui(() -> {
+            lineClearedListener.fadeOut(cleared);
+            Multimedia.playAudio("clear.wav");
+        });
+    }
+
+    /**
+     * Update the score property
+     */
+    @Override
+    public void scoreChanged(int newScore) {
+        ui(() -> score.set(newScore));
+    }
+
+    /**
+     * Update the level property, playing a sound when levelling up
+     */
+    @Override
+    public void levelChanged(int oldLevel, int newLevel) {
+        ui(() -> {
+            level.set(newLevel);
+            if (oldLevel < newLevel) {
+                Multimedia.playAudio("level.wav");
+            }
+        });
+    }
+
+    /**
+     * Update the multiplier property
+     */
+    @Override
+    public void multiplierChanged(int newMultiplier) {
+        ui(() -> multiplier.set(newMultiplier));
+    }
+
+    /**
+     * Update the lives property and play the sound for losing a life
+     */
+    @Override
+    public void lifeLost(int remainingLives) {
+        ui(() -> {
+            Multimedia.playAudio("lifelose.wav");
+            lives.set(remainingLives);
+        });
+    }
+
+    /**
+     * End the game, letting the server know in a multiplayer game
+     */
+    @Override
+    public void gameEnded() {
+        if (multiplayer) {
+            ((MultiplayerGame)this).sendCommunication("DIE");
+        }
+        ui(() -> {
+            Multimedia.playAudio("transition.wav");
+            gameOver.set(true);
+        });
     }
 }
@@ -0,0 +1,436 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.ai.SurvivabilityTable;
+import uk.ac.soton.comp1206.event.GameEventListener;
+
+/**
+ * The GameEngine holds the rules and state of a TetrECS game: the grid, the current and next pieces, the score, level,
+ * lives and multiplier. It has no JavaFX properties, sound or timers, so it can run headless in a plain JVM.
+ *
+ * Everything that happens is reported to the attached GameEventListeners. Timing is left to the caller, which calls
+ * {@link #loseLife()} whenever the game loop times out.
+ *
+ * After every move the engine publishes an immutable GameState through a volatile reference, which other threads can
+ * read with {@link #getState()} at any time.
+ */
+public class GameEngine {
+
+    private static final Logger logger = LogManager.getLogger(GameEngine.class);
+
+    /**
+     * The number of lives at the start of a game
+     */
+    public static final int STARTING_LIVES = 3;
+
+    /**
+     * The colour of the blocks a puzzle starts with
+     */
+    public static final int PUZZLE_BLOCK = 13;
+
+    /**
+     * The grid model linked to the engine
+     */
+    private final Grid grid;
+
+    /**
+     * The survivability table for the grid size, or null if there is none
+     */
+    private final SurvivabilityTable survivability;
+
+    /**
+     * Supplies the piece number of every new piece
+     */
+    private PieceSource pieceSource;
+
+    private GamePiece currentPiece;
+    private GamePiece nextPiece;
+
+    private int score;
+    private int level;
+    private int lives = STARTING_LIVES;
+    private int multiplier = 1;
+    private boolean gameOver;
+
+    /**
+     * The number of moves made in the current game
+     */
+    private long tick;
+
+    /**
+     * The latest snapshot of the game, replaced after every move
+     */
+    private volatile GameState state;
+
+    /**
+     * The blocks cleared by the last piece, reused between pieces
+     */
+    private final CoordinateSet clearedBlocks;
+
+    /**
+     * The listeners notified of every event
+     */
+    private final List<GameEventListener> listeners = new ArrayList<>();
+
+    /**
+     * Create a new engine with the specified columns and rows, drawing pieces uniformly at random
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public GameEngine(int cols, int rows) {
+        this(cols, rows, new SeededPieceSource());
+    }
+
+    /**
+     * Create a new engine with the specified columns and rows, drawing pieces from the given source
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSource the source of every new piece
+     */
+    public GameEngine(int cols, int rows, PieceSource pieceSource) {
+        this.grid = new Grid(cols, rows);
+        this.survivability = SurvivabilityTable.forSize(cols, rows);
+        this.clearedBlocks = new CoordinateSet(cols, rows);
+        this.pieceSource = pieceSource;
+        this.state = new GameState(this, 0);
+    }
+
+    /**
+     * Set where the piece number of every new piece comes from. Takes effect from the next piece drawn.
+     * @param pieceSource the source of piece numbers
+     */
+    public void setPieceSource(PieceSource pieceSource) {
+        this.pieceSource = pieceSource;
+    }
+
+    /**
+     * @return the source of every new piece
+     */
+    public PieceSource getPieceSource() {
+        return pieceSource;
+    }
+
+    /**
+     * Add a listener to be notified of every event
+     * @param listener the listener to add
+     */
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a previously added listener
+     * @param listener the listener to remove
+     */
+    public void removeListener(GameEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reset every counter, empty the grid and draw the first current and next pieces
+     */
+    public void start() {
+        logger.debug("Starting engine");
+        grid.clear();
+        begin();
+    }
+
+    /**
+     * Start a puzzle: reset every counter, fill the puzzle's blocks and draw its pieces. After the puzzle's last piece
+     * its pieces are drawn again from the first.
+     * @param puzzle the puzzle, of the same size as the grid
+     */
+    public void start(Puzzle puzzle) {
+        if (puzzle.getCols() != grid.getCols() || puzzle.getRows() != grid.getRows()) {
+            throw new IllegalArgumentException("Puzzle is for a different grid size");
+        }
+        logger.debug("Starting puzzle {}", puzzle);
+        grid.clear();
+        for (int y = 0; y < grid.getRows(); y++) {
+            for (int x = 0; x < grid.getCols(); x++) {
+                if (puzzle.isFilled(x, y)) {
+                    grid.set(x, y, PUZZLE_BLOCK);
+                }
+            }
+        }
+        pieceSource = new FixedPieceSource(true, puzzle.getPieces());
+        begin();
+    }
+
+    /**
+     * Reset every counter and draw the first current and next pieces, then tell the listeners the game has started
+     */
+    private void begin() {
+        score = 0;
+        level = 0;
+        lives = STARTING_LIVES;
+        multiplier = 1;
+        gameOver = false;
+        tick = 0;
+        currentPiece = drawPiece();
+        nextPiece = drawPiece();
+        publish();
+
+        for (GameEventListener listener : listeners) {
+            listener.gameStarted();
+        }
+    }
+
+    /**
+     * Play the current piece with its centre at the given x and y of the grid. If it was played, lines are cleared,
+     * the score is updated and the next piece becomes the current piece.
+     * @param x the x coordinate to place the piece at
+     * @param y the y coordinate to place the piece at
+     * @return true if the piece was played
+     */
+    public boolean place(int x, int y) {
+        var piece = currentPiece;
+        if (!grid.playPiece(piece, x, y)) {
+            for (GameEventListener listener : listeners) {
+                listener.placementFailed(piece, x, y);
+            }
+            return false;
+        }
+
+        for (GameEventListener listener : listeners) {
+            listener.piecePlaced(piece, x, y);
+        }
+        afterPiece();
+        advancePieces();
+        publish();
+        return true;
+    }
+
+    /**
+     * Called after a piece was placed on the grid. Clears any full lines from the grid, then updates the score and
+     * multiplier. Only the rows and columns the piece touched are checked.
+     */
+    private void afterPiece() {
+        clearedBlocks.clear();
+        int lines = grid.clearLines(clearedBlocks);
+
+        //If there are any lines that were cleared
+        if (lines != 0) {
+            for (GameEventListener listener : listeners) {
+                listener.linesCleared(lines, clearedBlocks);
+            }
+            score(lines, clearedBlocks.size());
+        }
+        setMultiplier(lines);
+    }
+
+    /**
+     * Update the score after clearing lines of blocks
+     * @param numberOfLines the number of lines that were cleared
+     * @param numberOfBlocks the number of blocks that were cleared
+     */
+    public void score(int numberOfLines, int numberOfBlocks) {
+        score += numberOfLines * numberOfBlocks * 10 * multiplier;
+        for (GameEventListener listener : listeners) {
+            listener.scoreChanged(score);
+        }
+        setLevel();
+    }
+
+    /**
+     * Update the level. Up one level on every 1000 points
+     */
+    private void setLevel() {
+        var oldLevel = level;
+        level = Math.floorDiv(score, 1000);
+        if (oldLevel != level) {
+            for (GameEventListener listener : listeners) {
+                listener.levelChanged(oldLevel, level);
+            }
+        }
+    }
+
+    /**
+     * Update the multiplier on cleared lines
+     * @param lines the number of lines that were cleared
+     */
+    private void setMultiplier(int lines) {
+        var newMultiplier = lines != 0 ? multiplier + 1 : 1;
+        if (newMultiplier != multiplier) {
+            multiplier = newMultiplier;
+            for (GameEventListener listener : listeners) {
+                listener.multiplierChanged(multiplier);
+            }
+        }
+    }
+
+    /**
+     * Rotate the current piece
+     * @param rotations the number of rotations to be performed
+     */
+    public void rotate(int rotations) {
+        currentPiece = currentPiece.rotate(rotations);
+        for (GameEventListener listener : listeners) {
+            listener.pieceRotated(currentPiece);
+            listener.currentPieceChanged(currentPiece);
+        }
+        publish();
+    }
+
+    /**
+     * Swap the current and next pieces
+     */
+    public void swap() {
+        var temp = nextPiece;
+        nextPiece = currentPiece;
+        currentPiece = temp;
+        for (GameEventListener listener : listeners) {
+            listener.piecesSwapped();
+            listener.currentPieceChanged(currentPiece);
+            listener.nextPieceChanged(nextPiece);
+        }
+        publish();
+    }
+
+    /**
+     * Called when the game loop times out. Loses a life, resets the multiplier and moves on to the next piece. If there
+     * are no lives left, the game ends instead.
+     * @return true if the game carries on, false if it has ended
+     */
+    public boolean loseLife() {
+        if (lives <= 0) {
+            gameOver = true;
+            publish();
+            for (GameEventListener listener : listeners) {
+                listener.gameEnded();
+            }
+            return false;
+        }
+
+        lives--;
+        for (GameEventListener listener : listeners) {
+            listener.lifeLost(lives);
+        }
+        setMultiplier(0);
+        advancePieces();
+        publish();
+        return true;
+    }
+
+    /**
+     * Check whether there is any move left: whether the current or the next piece, which it can be swapped for, can be
+     * played anywhere on the grid in any rotation. When there is a survivability table for the grid size, boards where
+     * no piece or every piece fits are answered by looking them up; otherwise the placements of both pieces are tried.
+     * @return true if either piece has a legal placement
+     */
+    public boolean hasMoves() {
+        if (survivability != null) {
+            int playable = survivability.countPlayable(grid.getOccupancy());
+            if (playable == 0) return false;
+            if (playable == GamePiece.PIECES) return true;
+        }
+        return grid.hasLegalPlacement(currentPiece) || grid.hasLegalPlacement(nextPiece);
+    }
+
+    /**
+     * Make the next piece the current piece and draw a new next piece
+     */
+    private void advancePieces() {
+        currentPiece = nextPiece;
+        for (GameEventListener listener : listeners) {
+            listener.currentPieceChanged(currentPiece);
+        }
+        nextPiece = drawPiece();
+        for (GameEventListener listener : listeners) {
+            listener.nextPieceChanged(nextPiece);
+        }
+    }
+
+    /**
+     * Publish a new snapshot of the game for other threads to read
+     */
+    private void publish() {
+        tick++;
+        state = new GameState(this, tick);
+    }
+
+    /**
+     * Get the latest snapshot of the game. Safe to call from any thread.
+     * @return the state published after the last move
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Draw a new piece from the piece source
+     * @return the new piece
+     */
+    private GamePiece drawPiece() {
+        return GamePiece.createPiece(pieceSource.nextPiece());
+    }
+
+    /**
+     * @return the current game loop time in milliseconds
+     */
+    public int getTimerDelay() {
+        return Math.max(2500, (12000 - 500 * level));
+    }
+
+    /**
+     * Get the grid model representing the state of the board
+     * @return game grid model
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return the current piece
+     */
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * @return the next piece
+     */
+    public GamePiece getNextPiece() {
+        return nextPiece;
+    }
+
+    /**
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the remaining lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * @return the multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * @return true if the game has ended
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -1,27 +1,48 @@
 package uk.ac.soton.comp1206.game;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
 /**
  * Instances of GamePiece Represents the model of a specific Game Piece with it's block makeup.
  *
+ * GamePieces are immutable. Every shape in every rotation is built once when the class is loaded, and a piece is just
+ * a shape and rotation pair pointing into that table. Rotating a piece returns the piece for the next rotation, so
+ * nothing is allocated while playing.
+ *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
  * number.
  */
 public class GamePiece {
 
-    private static final Logger logger = LogManager.getLogger(GamePiece.class);
-
     /**
      * The total number of pieces in this game
      */
     public static final int PIECES = 15;
 
     /**
-     * The 2D grid representation of the shape of this piece
+     * The number of different rotations of every piece
+     */
+    public static final int ROTATIONS = 4;
+
+    /**
+     * Every piece in every rotation, indexed by piece number and rotation
+     */
+    private static final GamePiece[][] TABLE = new GamePiece[PIECES][ROTATIONS];
+
+    static {
+        for (int piece = 0; piece < PIECES; piece++) {
+            var base = define(piece);
+            int[][] blocks = base.blocks;
+            for (int rotation = 0; rotation < ROTATIONS; rotation++) {
+                TABLE[piece][rotation] = new GamePiece(base.name, blocks, base.value, piece, rotation);
+                blocks = rotate(blocks);
+            }
+        }
+    }
+
+    /**
+     * The 2D grid representation of the shape of this piece. Shared between every user of the piece, so it must not
+     * be modified.
      */
-    private int[][] blocks;
+    private final int[][] blocks;
 
     /**
      * The value of this piece
@@ -34,100 +55,154 @@ public class GamePiece {
     private final String name;
 
     /**
-     * Create a new GamePiece of the specified piece number
+     * The piece number of this piece
+     */
+    private final int shape;
+
+    /**
+     * The rotation of this piece, from 0 to 3
+     */
+    private final int rotation;
+
+    /**
+     * The lowest rotation of this shape with exactly the same blocks
+     */
+    private final int canonicalRotation;
+
+    /**
+     * The blocks of this piece as a mask, with the block at x, y at bit y * 3 + x
+     */
+    private final int mask;
+
+    /**
+     * The blocks of every row of this piece, with bit x set when there is a block at x
+     */
+    private final int[] rowMasks = new int[3];
+
+    /**
+     * The x and y offsets of every block of this piece inside its 3x3 grid
+     */
+    private final int[] cellX;
+    private final int[] cellY;
+
+    /**
+     * Get the GamePiece of the specified piece number
      * @param piece piece number
-     * @return the created GamePiece
+     * @return the GamePiece
      */
     public static GamePiece createPiece(int piece) {
+        if (piece < 0 || piece >= PIECES) {
+            //Not a valid piece number
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
+        }
+        return TABLE[piece][0];
+    }
+
+    /**
+     * Get the GamePiece of the specified piece number and rotation
+     * @param piece piece number
+     * @param rotation number of times to rotate
+     * @return the GamePiece
+     */
+    public static GamePiece createPiece(int piece, int rotation) {
+        return createPiece(piece).rotate(rotation);
+    }
+
+    /**
+     * Build the unrotated GamePiece of the specified piece number
+     * @param piece piece number
+     * @return the unrotated GamePiece
+     */
+    private static GamePiece define(int piece) {
         switch (piece) {
             //Line
             case 0 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Line", blocks, 1);
+                return new GamePiece("Line", blocks, 1, piece, 0);
             }
 
             //C
             case 1 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-                return new GamePiece("C", blocks, 2);
+                return new GamePiece("C", blocks, 2, piece, 0);
             }
 
             //Plus
             case 2 -> {
                 int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-                return new GamePiece("Plus", blocks, 3);
+                return new GamePiece("Plus", blocks, 3, piece, 0);
             }
 
             //Dot
             case 3 -> {
                 int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Dot", blocks, 4);
+                return new GamePiece("Dot", blocks, 4, piece, 0);
             }
 
             //Square
             case 4 -> {
                 int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Square", blocks, 5);
+                return new GamePiece("Square", blocks, 5, piece, 0);
             }
 
             //L
             case 5 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-                return new GamePiece("L", blocks, 6);
+                return new GamePiece("L", blocks, 6, piece, 0);
             }
 
             //J
             case 6 -> {
                 int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("J", blocks, 7);
+                return new GamePiece("J", blocks, 7, piece, 0);
             }
 
             //S
             case 7 -> {
                 int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-                return new GamePiece("S", blocks, 8);
+                return new GamePiece("S", blocks, 8, piece, 0);
             }
 
             //Z
             case 8 -> {
                 int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Z", blocks, 9);
+                return new GamePiece("Z", blocks, 9, piece, 0);
             }
 
             //T
             case 9 -> {
                 int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("T", blocks, 10);
+                return new GamePiece("T", blocks, 10, piece, 0);
             }
 
             //X
             case 10 -> {
                 int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-                return new GamePiece("X", blocks, 11);
+                return new GamePiece("X", blocks, 11, piece, 0);
             }
 
             //Corner
             case 11 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("Corner", blocks, 12);
+                return new GamePiece("Corner", blocks, 12, piece, 0);
             }
 
             //Inverse Corner
             case 12 -> {
                 int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Inverse Corner", blocks, 13);
+                return new GamePiece("Inverse Corner", blocks, 13, piece, 0);
             }
 
             //Diagonal
             case 13 -> {
                 int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-                return new GamePiece("Diagonal", blocks, 14);
+                return new GamePiece("Diagonal", blocks, 14, piece, 0);
             }
 
             //Double
             case 14 -> {
                 int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Double", blocks, 15);
+                return new GamePiece("Double", blocks, 15, piece, 0);
             }
         }
 
@@ -136,37 +211,51 @@ public class GamePiece {
     }
 
     /**
-     * Create a new GamePiece of the specified piece number and rotation
-     * @param piece piece number
-     * @param rotation number of times to rotate
-     * @return the created GamePiece
-     */
-    public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
-
-        newPiece.rotate(rotation);
-        return newPiece;
-    }
-
-    /**
-     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
-     * factory.
+     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only when
+     * building the table of pieces.
      * @param name name of the piece
      * @param blocks block makeup of the piece
      * @param value the value of this piece
+     * @param shape the piece number
+     * @param rotation the rotation of the block makeup
      */
-    private GamePiece(String name, int[][] blocks, int value) {
+    private GamePiece(String name, int[][] blocks, int value, int shape, int rotation) {
         this.name = name;
         this.blocks = blocks;
         this.value = value;
+        this.shape = shape;
+        this.rotation = rotation;
 
         //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
+        int mask = 0;
         for(int x = 0; x < blocks.length; x++) {
             for (int y = 0; y < blocks[x].length; y++) {
                 if(blocks[x][y] == 0) continue;
                 blocks[x][y] = value;
+                mask |= 1 << (y * 3 + x);
+                rowMasks[y] |= 1 << x;
+            }
+        }
+        this.mask = mask;
+
+        cellX = new int[Integer.bitCount(mask)];
+        cellY = new int[cellX.length];
+        int cell = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int index = Integer.numberOfTrailingZeros(bits);
+            cellX[cell] = index % 3;
+            cellY[cell] = index / 3;
+            cell++;
+        }
+
+        int canonical = rotation;
+        for (int other = 0; other < rotation; other++) {
+            if (TABLE[shape][other] != null && TABLE[shape][other].mask == mask) {
+                canonical = other;
+                break;
             }
         }
+        this.canonicalRotation = canonical;
     }
 
     /**
@@ -178,7 +267,7 @@ public class GamePiece {
     }
 
     /**
-     * Get the block makeup of this piece
+     * Get the block makeup of this piece. The grid is shared and must not be modified.
      * @return 2D grid of the blocks representing the piece shape
      */
     public int[][] getBlocks() {
@@ -186,21 +275,95 @@ public class GamePiece {
     }
 
     /**
-     * Rotate this piece the given number of rotations
+     * Get the piece number of this piece
+     * @return piece number
+     */
+    public int getShape() {
+        return shape;
+    }
+
+    /**
+     * Get the rotation of this piece
+     * @return rotation, from 0 to 3
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Whether no lower rotation of this shape has exactly the same blocks. Searches only need to try these.
+     * @return true if this is the first rotation with this block makeup
+     */
+    public boolean isUniqueRotation() {
+        return canonicalRotation == rotation;
+    }
+
+    /**
+     * Get the blocks of this piece as a mask
+     * @return the mask, with the block at x, y at bit y * 3 + x
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the blocks of one row of this piece
+     * @param y row
+     * @return a mask with bit x set when there is a block at x, y
+     */
+    public int getRowMask(int y) {
+        return rowMasks[y];
+    }
+
+    /**
+     * Get the number of blocks in this piece
+     * @return number of blocks
+     */
+    public int getCellCount() {
+        return cellX.length;
+    }
+
+    /**
+     * Get the x offset of a block of this piece inside its 3x3 grid
+     * @param cell the block, from 0 to the number of blocks
+     * @return the x offset
+     */
+    public int getCellX(int cell) {
+        return cellX[cell];
+    }
+
+    /**
+     * Get the y offset of a block of this piece inside its 3x3 grid
+     * @param cell the block, from 0 to the number of blocks
+     * @return the y offset
+     */
+    public int getCellY(int cell) {
+        return cellY[cell];
+    }
+
+    /**
+     * Get this piece rotated the given number of rotations
      * @param rotations number of rotations
+     * @return the rotated piece
      */
-    public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
-        }
+    public GamePiece rotate(int rotations) {
+        return TABLE[shape][Math.floorMod(rotation + rotations, ROTATIONS)];
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Get this piece rotated exactly once
+     * @return the rotated piece
      */
-    public void rotate() {
-        logger.info("Rotating " + toString());
+    public GamePiece rotate() {
+        return rotate(1);
+    }
 
+    /**
+     * Rotate a 3x3 block makeup exactly once
+     * @param blocks the blocks to rotate
+     * @return a new rotated 3x3 grid
+     */
+    private static int[][] rotate(int[][] blocks) {
         int[][] rotated = new int[blocks.length][blocks[0].length];
         rotated[2][0] = blocks[0][0];
         rotated[1][0] = blocks[0][1];
@@ -214,10 +377,9 @@ public class GamePiece {
         rotated[1][2] = blocks[2][1];
         rotated[0][2] = blocks[2][2];
 
-        blocks = rotated;
+        return rotated;
     }
 
-
     /**
      * Return the string representation of this piece
      * @return the name of this piece and it's value
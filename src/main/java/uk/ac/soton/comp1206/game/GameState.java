@@ -0,0 +1,209 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameState is an immutable snapshot of a GameEngine: the blocks of the grid, the current and next pieces, and the
+ * score, level, lives and multiplier. The engine publishes a new snapshot after every move, so any thread can read a
+ * consistent state without locking, for example to render it, send it to the server or evaluate it.
+ *
+ * Snapshots share the rows of the grid that did not change between them, so publishing one is cheap.
+ */
+public class GameState {
+
+    private final int cols;
+    private final int rows;
+
+    /**
+     * The occupancy of every row, shared with the grid and other snapshots. Never modified.
+     */
+    private final long[][] rowBits;
+
+    /**
+     * The value of every block, shared with the grid and other snapshots. Never modified.
+     */
+    private final byte[][] colours;
+
+    private final GamePiece currentPiece;
+    private final GamePiece nextPiece;
+    private final int score;
+    private final int level;
+    private final int lives;
+    private final int multiplier;
+    private final boolean gameOver;
+
+    /**
+     * The Zobrist key of the filled blocks
+     */
+    private final long zobristKey;
+
+    /**
+     * The number of moves made in the game when this snapshot was taken
+     */
+    private final long tick;
+
+    /**
+     * Take a snapshot of an engine
+     * @param engine the engine to take a snapshot of
+     * @param tick the number of moves made so far
+     */
+    GameState(GameEngine engine, long tick) {
+        var grid = engine.getGrid();
+        this.cols = grid.getCols();
+        this.rows = grid.getRows();
+        this.rowBits = grid.shareRowBits();
+        this.colours = grid.shareColours();
+        this.zobristKey = grid.getZobristKey();
+        this.currentPiece = engine.getCurrentPiece();
+        this.nextPiece = engine.getNextPiece();
+        this.score = engine.getScore();
+        this.level = engine.getLevel();
+        this.lives = engine.getLives();
+        this.multiplier = engine.getMultiplier();
+        this.gameOver = engine.isGameOver();
+        this.tick = tick;
+    }
+
+    /**
+     * Get the value of a block
+     * @param x column
+     * @param y row
+     * @return the value, or -1 if there is no such block
+     */
+    public int get(int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            return -1;
+        }
+        return colours[y][x];
+    }
+
+    /**
+     * Check whether a block is filled
+     * @param x column
+     * @param y row
+     * @return true if the block is not empty
+     */
+    public boolean isFilled(int x, int y) {
+        return (rowBits[y][x >>> 6] & (1L << x)) != 0;
+    }
+
+    /**
+     * Get 64 columns of the occupancy of a row
+     * @param y row
+     * @param word which 64 columns
+     * @return a mask with bit x % 64 set when the block at x is not empty
+     */
+    public long getRowWord(int y, int word) {
+        return rowBits[y][word];
+    }
+
+    /**
+     * Get the colours of a row. The array is shared and must not be modified.
+     * @param y row
+     * @return the value of every block of the row
+     */
+    byte[] getColourRow(int y) {
+        return colours[y];
+    }
+
+    /**
+     * Get the occupancy of the whole grid as a single mask, with the block at x, y at bit y * cols + x. Only available
+     * for grids of at most 64 blocks.
+     * @return the occupancy mask
+     */
+    public long getOccupancy() {
+        if (cols * rows > 64) {
+            throw new IllegalStateException("Grid of " + cols + " x " + rows + " does not fit in a single mask");
+        }
+        long occupancy = 0;
+        for (int y = 0; y < rows; y++) {
+            occupancy |= rowBits[y][0] << (y * cols);
+        }
+        return occupancy;
+    }
+
+    /**
+     * @return the Zobrist key of the filled blocks, as given by {@link Grid#getZobristKey()}
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the current piece
+     */
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * @return the next piece
+     */
+    public GamePiece getNextPiece() {
+        return nextPiece;
+    }
+
+    /**
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the remaining lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * @return the multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * @return true if the game had ended
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * @return the number of moves made when this snapshot was taken
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Return a string representation of this snapshot
+     * @return the tick and counters
+     */
+    @Override
+    public String toString() {
+        return "GameState [tick=" + tick + ", score=" + score + ", level=" + level + ", lives=" + lives
+            + ", multiplier=" + multiplier + ", gameOver=" + gameOver + "]";
+    }
+}
@@ -1,16 +1,31 @@
 package uk.ac.soton.comp1206.game;
 
+import java.util.Arrays;
+import java.util.BitSet;
+
 import org.apache.logging.log4j.*;
 
 import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * Internally the Grid is a bitboard: every row is a bitset of one long per 64 columns, with bit x set when column x is
+ * occupied, and the colour of every block is kept in a packed byte array per row. Placement checks and line clears are
+ * done with mask operations a word at a time, so the Grid can be used in headless simulations without any JavaFX
+ * overhead and scales to large boards.
+ *
+ * The number of filled blocks in every row and column is kept up to date, so full lines are found by only looking at
+ * the rows and columns that were filled since the last clear.
+ *
+ * The Grid keeps the Zobrist key of its occupancy up to date, so a search can look up a board without walking it.
+ *
+ * Rows can be shared with immutable GameState snapshots. A shared row is copied the first time it is written to after
+ * a snapshot, so taking a snapshot only costs copying the rows changed since the last one.
+ *
+ * The IntegerProperty of each block is only created when a GridView is requested, for example when a GameBoard binds
+ * to the Grid. The view is refreshed once after every mutation.
  *
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  *
@@ -19,6 +34,7 @@ import javafx.beans.property.SimpleIntegerProperty;
 public class Grid {
 
     private static final Logger logger = LogManager.getLogger(Grid.class);
+
     /**
      * The number of columns in this grid
      */
@@ -30,9 +46,59 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * The number of longs in every row
+     */
+    private final int words;
+
+    /**
+     * The occupancy of every row. Bit x % 64 of rowBits[y][x / 64] is set when the block at x, y is not empty
+     */
+    private final long[][] rowBits;
+
+    /**
+     * The value of every block, stored row by row
+     */
+    private final byte[][] colours;
+
+    /**
+     * The number of blocks filled in every row
+     */
+    private final int[] rowCounts;
+
+    /**
+     * The number of blocks filled in every column
+     */
+    private final int[] colCounts;
+
+    /**
+     * A mask with a bit set for every column of the last word of a row
+     */
+    private final long lastWordMask;
+
+    /**
+     * The columns found full by the last clear, reused between clears
+     */
+    private final long[] fullCols;
+
+    /**
+     * The Zobrist key of the filled blocks
      */
-    private final SimpleIntegerProperty[][] grid;
+    private long zobristKey;
+
+    /**
+     * Which rows are shared with a snapshot and must be copied before they are written to
+     */
+    private final boolean[] sharedRows;
+
+    /**
+     * The bounds of the blocks filled since lines were last cleared. Only these rows and columns can have become full.
+     */
+    private int dirtyMinX, dirtyMaxX, dirtyMinY, dirtyMaxY;
+
+    /**
+     * The JavaFX view of this grid, only created when something binds to it
+     */
+    private GridView view;
 
     /**
      * Create a new Grid with the specified number of columns and rows and initialise them
@@ -40,18 +106,22 @@ public class Grid {
      * @param rows number of rows
      */
     public Grid(int cols, int rows) {
+        if (cols < 1 || rows < 1 || (long) cols * rows * GamePiece.ROTATIONS > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + cols + " x " + rows);
+        }
         this.cols = cols;
         this.rows = rows;
+        this.words = (cols + 63) >>> 6;
 
-        //Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
-
-        //Add a SimpleIntegerProperty to every block in the grid
-        for(var y = 0; y < rows; y++) {
-            for(var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
-            }
-        }
+        //Create the grid itself, every block starts empty
+        rowBits = new long[rows][words];
+        colours = new byte[rows][cols];
+        rowCounts = new int[rows];
+        colCounts = new int[cols];
+        fullCols = new long[words];
+        sharedRows = new boolean[rows];
+        lastWordMask = (cols & 63) == 0 ? -1L : (1L << cols) - 1;
+        resetDirty();
     }
 
     /**
@@ -62,17 +132,15 @@ public class Grid {
      * @return true if the piece can be played at the specified position
      */
     public boolean canPlayPiece(GamePiece gamePiece, int xPos, int yPos) {
-        logger.info("Checking if a piece can be played");
-
-        int[][] gamePieceBlocks = gamePiece.getBlocks();
-        for (int x = 0; x < gamePieceBlocks.length; x++) {
-            for (int y = 0; y < gamePieceBlocks[x].length; y++) {
-                if (gamePieceBlocks[x][y] != 0) {
-                    if (get(x + xPos, y + yPos) != 0) {
-                        return false;
-                    }
-                }
-            }
+        logger.debug("Checking if a piece can be played");
+
+        for (int y = 0; y < 3; y++) {
+            long mask = gamePiece.getRowMask(y);
+            if (mask == 0) continue;
+
+            int row = y + yPos;
+            if (row < 0 || row >= rows) return false;
+            if ((window(rowBits[row], xPos) & mask) != 0) return false;
         }
         return true;
     }
@@ -88,20 +156,213 @@ public class Grid {
         xPos--;
         yPos--;
         if (canPlayPiece(gamePiece, xPos, yPos) == false) return false;
-        
-        logger.info("Playing piece: " + gamePiece.toString());
+
+        logger.info("Playing piece: {}", gamePiece);
         boolean played = false;
 
-        int[][] gamePieceBlocks = gamePiece.getBlocks();
-        for (int x = 0; x < gamePieceBlocks.length; x++) {
-            for (int y = 0; y < gamePieceBlocks[x].length; y++) {
-                if (gamePieceBlocks[x][y] != 0) {
-                    set(x+xPos, y+yPos, gamePieceBlocks[x][y]);
-                    played = true;
+        for (int cell = 0; cell < gamePiece.getCellCount(); cell++) {
+            int x = gamePiece.getCellX(cell) + xPos;
+            int y = gamePiece.getCellY(cell) + yPos;
+            writeRow(y);
+            rowBits[y][x >>> 6] |= 1L << x;
+            zobristKey ^= Zobrist.block(y * cols + x);
+            colours[y][x] = (byte) gamePiece.getValue();
+            filled(x, y);
+            played = true;
+        }
+
+        refreshView(Math.max(0, yPos), Math.min(rows, yPos + 3));
+        return played;
+    }
+
+    /**
+     * Find every legal placement of a piece in all of its rotations. Placements are indexed by
+     * {@link #placementIndex(int, int, int)}, where x and y are the centre of the piece as passed to
+     * {@link #playPiece(GamePiece, int, int)} and the rotation is the rotation of the piece's shape.
+     *
+     * For every rotation and centre row, the blocked centre columns of 64 columns at a time are found at once by
+     * shifting the occupied rows under each block of the piece, with everything outside the grid counted as occupied.
+     * @param gamePiece the piece to place, in any rotation
+     * @return a bitset with the index of every legal placement set
+     */
+    public BitSet legalPlacements(GamePiece gamePiece) {
+        long[] placements = new long[(GamePiece.ROTATIONS * rows * cols + 63) >>> 6];
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            var piece = GamePiece.createPiece(gamePiece.getShape(), rotation);
+            for (int y = 0; y < rows; y++) {
+                for (int word = 0; word < words; word++) {
+                    long legal = legalCentres(piece, y, word);
+                    if (legal == 0) continue;
+
+                    int index = placementIndex(rotation, word << 6, y);
+                    int shift = index & 63;
+                    placements[index >>> 6] |= legal << shift;
+                    if (shift != 0 && (legal >>> (64 - shift)) != 0) {
+                        placements[(index >>> 6) + 1] |= legal >>> (64 - shift);
+                    }
                 }
             }
         }
-        return played;
+        return BitSet.valueOf(placements);
+    }
+
+    /**
+     * Check whether a piece can be played anywhere on the grid in any rotation
+     * @param gamePiece the piece to place, in any rotation
+     * @return true if there is at least one legal placement
+     */
+    public boolean hasLegalPlacement(GamePiece gamePiece) {
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            var piece = GamePiece.createPiece(gamePiece.getShape(), rotation);
+            if (!piece.isUniqueRotation()) continue;
+            for (int y = 0; y < rows; y++) {
+                for (int word = 0; word < words; word++) {
+                    if (legalCentres(piece, y, word) != 0) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the lines that playing a piece would clear, without changing the grid. The piece must be playable at the
+     * given position.
+     * @param gamePiece the piece to play
+     * @param xPos the x coordinate of the centre of the piece
+     * @param yPos the y coordinate of the centre of the piece
+     * @return the number of rows and columns the piece would complete
+     */
+    public int countLinesCleared(GamePiece gamePiece, int xPos, int yPos) {
+        xPos--;
+        yPos--;
+        int lines = 0;
+        for (int y = 0; y < 3; y++) {
+            int mask = gamePiece.getRowMask(y);
+            if (mask != 0 && rowCounts[y + yPos] + Integer.bitCount(mask) == cols) lines++;
+        }
+        for (int x = 0; x < 3; x++) {
+            //The blocks of the piece in column x
+            int cells = 0;
+            for (int y = 0; y < 3; y++) {
+                cells += (gamePiece.getRowMask(y) >>> x) & 1;
+            }
+            if (cells != 0 && colCounts[x + xPos] + cells == rows) lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Get the index of a placement in the bitset returned by {@link #legalPlacements(GamePiece)}
+     * @param rotation the rotation of the piece's shape
+     * @param x the centre column
+     * @param y the centre row
+     * @return the placement index
+     */
+    public int placementIndex(int rotation, int x, int y) {
+        return (rotation * rows + y) * cols + x;
+    }
+
+    /**
+     * Get the rotation of a placement index
+     * @param index the placement index
+     * @return the rotation of the piece's shape
+     */
+    public int placementRotation(int index) {
+        return index / (rows * cols);
+    }
+
+    /**
+     * Get the centre column of a placement index
+     * @param index the placement index
+     * @return the centre column
+     */
+    public int placementX(int index) {
+        return index % cols;
+    }
+
+    /**
+     * Get the centre row of a placement index
+     * @param index the placement index
+     * @return the centre row
+     */
+    public int placementY(int index) {
+        return (index / cols) % rows;
+    }
+
+    /**
+     * Clear every full row and column of the grid. Only the rows and columns that had blocks filled since the last
+     * call are checked, using the fill count of each row and column. The blocks are then cleared a word at a time.
+     * @param cleared the set the coordinates of the cleared blocks are added to
+     * @return the number of lines that were cleared
+     */
+    public int clearLines(CoordinateSet cleared) {
+        int lines = 0;
+        boolean fullRows = false;
+        boolean anyFullCols = false;
+        for (int y = dirtyMinY; y <= dirtyMaxY; y++) {
+            if (rowCounts[y] == cols) {
+                fullRows = true;
+                lines++;
+            }
+        }
+        for (int x = dirtyMinX; x <= dirtyMaxX; x++) {
+            if (colCounts[x] == rows) {
+                fullCols[x >>> 6] |= 1L << x;
+                anyFullCols = true;
+                lines++;
+            }
+        }
+        resetDirty();
+        if (lines == 0) return 0;
+
+        for (int y = 0; y < rows; y++) {
+            boolean fullRow = fullRows && rowCounts[y] == cols;
+            if (!fullRow && !anyFullCols) continue;
+
+            writeRow(y);
+            long[] row = rowBits[y];
+            int count = 0;
+            for (int word = 0; word < words; word++) {
+                long clearMask = fullRow ? row[word] : row[word] & fullCols[word];
+                if (clearMask == 0) continue;
+
+                for (long bits = clearMask; bits != 0; bits &= bits - 1) {
+                    int x = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    colours[y][x] = 0;
+                    colCounts[x]--;
+                    zobristKey ^= Zobrist.block(y * cols + x);
+                }
+                cleared.addWord(y, word, clearMask);
+                row[word] &= ~clearMask;
+                count += Long.bitCount(clearMask);
+            }
+            rowCounts[y] -= count;
+        }
+        Arrays.fill(fullCols, 0);
+
+        refreshView(0, rows);
+        return lines;
+    }
+
+    /**
+     * Empty every block of the grid
+     */
+    public void clear() {
+        for (int y = 0; y < rows; y++) {
+            if (sharedRows[y]) {
+                rowBits[y] = new long[words];
+                colours[y] = new byte[cols];
+                sharedRows[y] = false;
+            } else {
+                Arrays.fill(rowBits[y], 0);
+                Arrays.fill(colours[y], (byte) 0);
+            }
+        }
+        Arrays.fill(rowCounts, 0);
+        Arrays.fill(colCounts, 0);
+        zobristKey = 0;
+        resetDirty();
+        refreshView(0, rows);
     }
 
     /**
@@ -111,7 +372,18 @@ public class Grid {
      * @return the IntegerProperty at the given x and y in this grid
      */
     public IntegerProperty getGridProperty(int x, int y) {
-        return grid[x][y];
+        return getView().getProperty(x, y);
+    }
+
+    /**
+     * Get the JavaFX view of this grid, creating it on first use
+     * @return the view of this grid
+     */
+    public GridView getView() {
+        if (view == null) {
+            view = new GridView(this);
+        }
+        return view;
     }
 
     /**
@@ -121,7 +393,59 @@ public class Grid {
      * @param value the new value
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            throw new ArrayIndexOutOfBoundsException("No block at " + x + ", " + y);
+        }
+        put(x, y, value);
+        refreshView(y, y + 1);
+    }
+
+    /**
+     * Copy every block of a snapshot into this grid. Only the rows that differ are written and refreshed.
+     * @param state the snapshot to copy, of a grid of the same size
+     */
+    void load(GameState state) {
+        if (state.getCols() != cols || state.getRows() != rows) {
+            throw new IllegalArgumentException("Snapshot is for a different grid size");
+        }
+        for (int y = 0; y < rows; y++) {
+            var source = state.getColourRow(y);
+            if (Arrays.equals(source, colours[y])) continue;
+
+            for (int x = 0; x < cols; x++) {
+                if (source[x] != colours[y][x]) {
+                    put(x, y, source[x]);
+                }
+            }
+            refreshView(y, y + 1);
+        }
+    }
+
+    /**
+     * Update the value of a block and its counters without refreshing the view
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    private void put(int x, int y, int value) {
+        writeRow(y);
+        long bit = 1L << x;
+        boolean wasFilled = (rowBits[y][x >>> 6] & bit) != 0;
+        if (value == 0) {
+            rowBits[y][x >>> 6] &= ~bit;
+            if (wasFilled) {
+                rowCounts[y]--;
+                colCounts[x]--;
+                zobristKey ^= Zobrist.block(y * cols + x);
+            }
+        } else {
+            rowBits[y][x >>> 6] |= bit;
+            if (!wasFilled) {
+                filled(x, y);
+                zobristKey ^= Zobrist.block(y * cols + x);
+            }
+        }
+        colours[y][x] = (byte) value;
     }
 
     /**
@@ -131,13 +455,73 @@ public class Grid {
      * @return the value
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
             //No such index
             return -1;
         }
+        return colours[y][x];
+    }
+
+    /**
+     * Get the occupancy of a row of a grid of at most 64 columns
+     * @param y row
+     * @return a mask with bit x set when the block at x is not empty
+     */
+    public long getRow(int y) {
+        return rowBits[y][0];
+    }
+
+    /**
+     * Get 64 columns of the occupancy of a row
+     * @param y row
+     * @param word which 64 columns, from 0 to {@link #getWords()}
+     * @return a mask with bit x % 64 set when the block at x is not empty
+     */
+    public long getRowWord(int y, int word) {
+        return rowBits[y][word];
+    }
+
+    /**
+     * Get the number of filled blocks in a row
+     * @param y row
+     * @return the number of filled blocks
+     */
+    public int getRowCount(int y) {
+        return rowCounts[y];
+    }
+
+    /**
+     * Get the number of filled blocks in a column
+     * @param x column
+     * @return the number of filled blocks
+     */
+    public int getColCount(int x) {
+        return colCounts[x];
+    }
+
+    /**
+     * Get the occupancy of the whole grid as a single mask, with the block at x, y at bit y * cols + x. Only available
+     * for grids of at most 64 blocks.
+     * @return the occupancy mask
+     */
+    public long getOccupancy() {
+        if (cols * rows > 64) {
+            throw new IllegalStateException("Grid of " + cols + " x " + rows + " does not fit in a single mask");
+        }
+        long occupancy = 0;
+        for (int y = 0; y < rows; y++) {
+            occupancy |= rowBits[y][0] << (y * cols);
+        }
+        return occupancy;
+    }
+
+    /**
+     * Get the Zobrist key of the filled blocks, the xor of {@link Zobrist#block(int)} of every filled block index
+     * y * cols + x. Two grids of the same size with the same blocks filled have the same key, whatever their colours.
+     * @return the key
+     */
+    public long getZobristKey() {
+        return zobristKey;
     }
 
     /**
@@ -155,4 +539,133 @@ public class Grid {
     public int getRows() {
         return rows;
     }
+
+    /**
+     * Get the number of longs used for every row
+     * @return number of words per row
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Share the occupancy of every row with a snapshot. The rows returned must not be modified, and are copied by the
+     * grid before it next writes to them.
+     * @return the occupancy of every row
+     */
+    long[][] shareRowBits() {
+        Arrays.fill(sharedRows, true);
+        return rowBits.clone();
+    }
+
+    /**
+     * Share the colour of every block with a snapshot. The rows returned must not be modified, and are copied by the
+     * grid before it next writes to them.
+     * @return the colours of every row
+     */
+    byte[][] shareColours() {
+        Arrays.fill(sharedRows, true);
+        return colours.clone();
+    }
+
+    /**
+     * Find the centre columns in 64 columns of a row where a piece can be played
+     * @param piece the piece to place
+     * @param y the centre row
+     * @param word which 64 columns to check
+     * @return a mask with bit x % 64 set when the piece can be played with its centre at x, y
+     */
+    private long legalCentres(GamePiece piece, int y, int word) {
+        int start = (word << 6) - 1;
+        long blocked = 0;
+        for (int dy = 0; dy < 3; dy++) {
+            int mask = piece.getRowMask(dy);
+            if (mask == 0) continue;
+
+            int row = y + dy - 1;
+            if (row < 0 || row >= rows) return 0;
+
+            //Bit x of each term is set when the block at x + dx - 1 is occupied or outside the grid
+            if ((mask & 1) != 0) blocked |= window(rowBits[row], start);
+            if ((mask & 2) != 0) blocked |= window(rowBits[row], start + 1);
+            if ((mask & 4) != 0) blocked |= window(rowBits[row], start + 2);
+        }
+        return ~blocked & (word == words - 1 ? lastWordMask : -1L);
+    }
+
+    /**
+     * Get 64 columns of a row starting at any column, with every block outside the grid counted as occupied
+     * @param row the row bits
+     * @param start the first column, which may be outside the grid
+     * @return a mask with bit i set when the block at start + i is occupied or outside the grid
+     */
+    private long window(long[] row, int start) {
+        if (start < 0) {
+            if (start <= -64) return -1L;
+            return (word(row, 0) << -start) | ((1L << -start) - 1);
+        }
+        int word = start >>> 6;
+        int shift = start & 63;
+        if (shift == 0) return word(row, word);
+        return (word(row, word) >>> shift) | (word(row, word + 1) << (64 - shift));
+    }
+
+    /**
+     * Get one word of a row, with every block outside the grid counted as occupied
+     * @param row the row bits
+     * @param word the word
+     * @return the word with the columns past the edge of the grid set
+     */
+    private long word(long[] row, int word) {
+        if (word >= words) return -1L;
+        if (word == words - 1) return row[word] | ~lastWordMask;
+        return row[word];
+    }
+
+    /**
+     * Make a row safe to write to, copying it first if it is shared with a snapshot
+     * @param y row
+     */
+    private void writeRow(int y) {
+        if (sharedRows[y]) {
+            rowBits[y] = rowBits[y].clone();
+            colours[y] = colours[y].clone();
+            sharedRows[y] = false;
+        }
+    }
+
+    /**
+     * Count a newly filled block and mark its row and column as possibly full
+     * @param x column
+     * @param y row
+     */
+    private void filled(int x, int y) {
+        rowCounts[y]++;
+        colCounts[x]++;
+        dirtyMinX = Math.min(dirtyMinX, x);
+        dirtyMaxX = Math.max(dirtyMaxX, x);
+        dirtyMinY = Math.min(dirtyMinY, y);
+        dirtyMaxY = Math.max(dirtyMaxY, y);
+    }
+
+    /**
+     * Forget which rows and columns have been filled
+     */
+    private void resetDirty() {
+        dirtyMinX = cols;
+        dirtyMaxX = -1;
+        dirtyMinY = rows;
+        dirtyMaxY = -1;
+    }
+
+    /**
+     * Push the current values of the given rows to the view, if there is one
+     * @param fromRow first row to refresh
+     * @param toRow row after the last row to refresh
+     */
+    private void refreshView(int fromRow, int toRow) {
+        if (view != null) {
+            view.refresh(fromRow, toRow);
+        }
+    }
 }
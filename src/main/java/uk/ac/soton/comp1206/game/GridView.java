@@ -0,0 +1,66 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * The GridView holds an IntegerProperty for every block of a Grid so that the Grid can be bound to and displayed,
+ * for example by a GameBoard.
+ *
+ * The view is only a mirror of the Grid. The Grid pushes its values to the view once after every mutation, so changing
+ * one of the properties directly does not change the Grid.
+ */
+public class GridView {
+
+    /**
+     * The grid this view mirrors
+     */
+    private final Grid grid;
+
+    /**
+     * The properties of every block, indexed by column and row
+     */
+    private final SimpleIntegerProperty[][] properties;
+
+    /**
+     * Create a new view of the given grid, initialised with its current values
+     * @param grid the grid to mirror
+     */
+    GridView(Grid grid) {
+        this.grid = grid;
+
+        properties = new SimpleIntegerProperty[grid.getCols()][grid.getRows()];
+        for (var y = 0; y < grid.getRows(); y++) {
+            for (var x = 0; x < grid.getCols(); x++) {
+                properties[x][y] = new SimpleIntegerProperty(grid.get(x, y));
+            }
+        }
+    }
+
+    /**
+     * Get the property of the block at the given column and row
+     * @param x column
+     * @param y row
+     * @return the IntegerProperty at the given x and y
+     */
+    public IntegerProperty getProperty(int x, int y) {
+        return properties[x][y];
+    }
+
+    /**
+     * Copy the values of the given rows from the grid into the properties. Properties whose value did not change are
+     * left alone so their listeners are not fired.
+     * @param fromRow first row to refresh
+     * @param toRow row after the last row to refresh
+     */
+    void refresh(int fromRow, int toRow) {
+        for (var y = fromRow; y < toRow; y++) {
+            for (var x = 0; x < properties.length; x++) {
+                var value = grid.get(x, y);
+                if (properties[x][y].get() != value) {
+                    properties[x][y].set(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The HashedWheelTimer runs the timeouts of any number of games on one thread. Time is cut into ticks, and a timeout
+ * is kept in the bucket of the wheel for the tick it expires in, the tick number modulo the size of the wheel. Every
+ * tick the timer thread wakes up once and runs the timeouts of one bucket whose tick has come; timeouts a whole turn
+ * of the wheel or more away are left for a later turn.
+ *
+ * A Timeout is created once and rescheduled as often as needed. Its buckets are doubly linked lists running through
+ * the timeouts themselves, so scheduling, rescheduling and cancelling only unlink and link one timeout: they take
+ * constant time and never allocate, whatever the number of timeouts.
+ *
+ * Timeouts never run early, but may run up to one tick late. Their tasks run on the timer thread and must be quick,
+ * for example submitting a command to a CommandQueue.
+ */
+public class HashedWheelTimer {
+
+    private static final Logger logger = LogManager.getLogger(HashedWheelTimer.class);
+
+    /**
+     * The tick of the shared timer in milliseconds
+     */
+    public static final long DEFAULT_TICK = 5;
+
+    /**
+     * The number of buckets of the shared timer, enough for game loops up to 12 seconds to take one turn
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 4096;
+
+    private static HashedWheelTimer shared;
+
+    private final String name;
+    private final long tickNanos;
+    private final long start = System.nanoTime();
+
+    /**
+     * The first timeout of every bucket
+     */
+    private final Timeout[] buckets;
+    private final int mask;
+
+    /**
+     * The last tick whose bucket has been run. Guarded by this timer.
+     */
+    private long lastTick;
+
+    /**
+     * The timeouts due in the tick being run. Only used on the timer thread.
+     */
+    private final List<Timeout> expired = new ArrayList<>();
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    //Guarded by this timer
+    private long pending;
+    private long scheduled;
+    private long fired;
+
+    /**
+     * Create a new timer and start its thread
+     * @param name the name of the timer thread
+     * @param tick the length of a tick in milliseconds
+     * @param wheelSize the number of buckets, a power of two
+     */
+    public HashedWheelTimer(String name, long tick, int wheelSize) {
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Get the timer shared by every game in this JVM, creating it the first time
+     * @return the shared timer
+     */
+    public static synchronized HashedWheelTimer getShared() {
+        if (shared == null) {
+            shared = new HashedWheelTimer("Game loop timer", DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+        }
+        return shared;
+    }
+
+    /**
+     * Create a timeout that runs a task when it expires. It is not scheduled until {@link Timeout#schedule} is called.
+     * @param task the task, run on the timer thread
+     * @return the timeout
+     */
+    public Timeout newTimeout(Runnable task) {
+        return new Timeout(task);
+    }
+
+    /**
+     * Stop the timer thread. Timeouts still scheduled never run.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        logger.info("Timer {} stopped: {}", name, this);
+    }
+
+    /**
+     * Run every tick's bucket as its time comes, on the timer thread
+     */
+    private void run() {
+        long tick = 1;
+        while (running) {
+            long wait = start + tick * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            synchronized (this) {
+                var timeout = buckets[(int) tick & mask];
+                while (timeout != null) {
+                    var next = timeout.next;
+                    if (timeout.deadline <= tick) {
+                        timeout.unlink();
+                        expired.add(timeout);
+                    }
+                    timeout = next;
+                }
+                lastTick = tick;
+                fired += expired.size();
+            }
+
+            for (var timeout : expired) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Timeout failed", e);
+                }
+            }
+            expired.clear();
+            //Ticks missed while the thread was held up are run straight away
+            tick++;
+        }
+    }
+
+    /**
+     * @return the number of timeouts waiting to run
+     */
+    public synchronized long getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the number of times a timeout has been scheduled or rescheduled
+     */
+    public synchronized long getScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * @return the number of timeouts that have run
+     */
+    public synchronized long getFired() {
+        return fired;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d pending, %d scheduled, %d fired, %d ms ticks, %d buckets", pending, scheduled, fired,
+            TimeUnit.NANOSECONDS.toMillis(tickNanos), buckets.length);
+    }
+
+    /**
+     * A task run once a delay has passed, which can be rescheduled or cancelled any number of times
+     */
+    public class Timeout {
+
+        private final Runnable task;
+
+        //Guarded by the timer
+        private long deadline;
+        private int bucket = -1;
+        private Timeout previous;
+        private Timeout next;
+
+        /**
+         * Create a new unscheduled timeout
+         * @param task the task to run when it expires
+         */
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Schedule the task to run after a delay, replacing the time it was scheduled for if it is already scheduled
+         * @param delay the delay
+         * @param unit the unit of the delay
+         */
+        public void schedule(long delay, TimeUnit unit) {
+            long due = System.nanoTime() + unit.toNanos(delay) - start;
+            synchronized (HashedWheelTimer.this) {
+                unlink();
+                //Round up to the tick ending after the deadline, so it never runs early
+                deadline = Math.max(Math.floorDiv(due + tickNanos - 1, tickNanos), lastTick + 1);
+                bucket = (int) deadline & mask;
+                next = buckets[bucket];
+                if (next != null) next.previous = this;
+                buckets[bucket] = this;
+                pending++;
+                scheduled++;
+            }
+        }
+
+        /**
+         * Cancel the task if it has not run yet
+         */
+        public void cancel() {
+            synchronized (HashedWheelTimer.this) {
+                unlink();
+            }
+        }
+
+        /**
+         * @return true if the task is waiting to run
+         */
+        public boolean isScheduled() {
+            synchronized (HashedWheelTimer.this) {
+                return bucket >= 0;
+            }
+        }
+
+        /**
+         * Take this timeout out of its bucket, if it is in one. Must hold the timer's lock.
+         */
+        private void unlink() {
+            if (bucket < 0) return;
+            if (previous != null) {
+                previous.next = next;
+            } else {
+                buckets[bucket] = next;
+            }
+            if (next != null) next.previous = previous;
+            previous = null;
+            next = null;
+            bucket = -1;
+            pending--;
+        }
+    }
+}
@@ -2,9 +2,9 @@ package uk.ac.soton.comp1206.game;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Observable;
 
-import javafx.application.Platform;
 import javafx.beans.property.SimpleListProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
@@ -14,19 +14,24 @@ import javafx.util.Pair;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.MultiplayerScene;
+import uk.ac.soton.comp1206.ui.FxUpdateQueue;
 
 public class MultiplayerGame extends Game implements CommunicationsListener {
 
     private Communicator communicator;
 
-    private int currentPiece;
-
-    private ArrayList<Integer> gamePieces = new ArrayList<Integer>();
+    private final ServerPieceSource pieceSource;
 
     private ArrayList<Pair<String, Integer>> pairs = new ArrayList<>();
     private ObservableList<Pair<String, Integer>> scores;
     private SimpleListProperty<Pair<String, Integer>> scoreListWrapper;
 
+    /**
+     * The state before every piece was placed and the number of pieces drawn by then, kept for the Oracle
+     */
+    private final List<GameState> placements = new ArrayList<>();
+    private final List<Integer> drawn = new ArrayList<>();
+
     /**
      * Create a new game with specified number of rows and columns
      * @param cols the number of colomns
@@ -34,8 +39,20 @@ public class MultiplayerGame extends Game implements CommunicationsListener {
      * @param communicator the communicator object
      */
     public MultiplayerGame(int cols, int rows, Communicator communicator) {
-        super(cols, rows);
+        this(cols, rows, communicator, new ServerPieceSource(communicator));
+    }
+
+    /**
+     * Create a new game playing the pieces of the given server source
+     * @param cols the number of colomns
+     * @param rows the number of rows
+     * @param communicator the communicator object
+     * @param pieceSource the source of the pieces issued by the server
+     */
+    private MultiplayerGame(int cols, int rows, Communicator communicator, ServerPieceSource pieceSource) {
+        super(cols, rows, pieceSource);
         this.communicator = communicator;
+        this.pieceSource = pieceSource;
         communicator.addListener(this);
         getScoreProperty().addListener((observable, oldvalue, newvalue) -> {sendScoreUpdate();});
         getLivesProperty().addListener((observable, oldvalue, newvalue) -> {sendLivesUpdate();});
@@ -60,16 +77,18 @@ public class MultiplayerGame extends Game implements CommunicationsListener {
     }
 
     /**
-     * Update the server on the current board of the player
+     * Update the server on the current board of the player. The board is read from the latest published snapshot, so
+     * it is consistent even if the game moves on while the message is built.
      */
     public void sendBoardChanged() {
-        String valueUpdate = "BOARD";
-        for (int i = 0; i < grid.getCols(); i++) {
-            for (int j = 0; j < grid.getRows(); j++) {
-                valueUpdate += (" " + String.valueOf(grid.get(i, j)));
+        var state = engine.getState();
+        var valueUpdate = new StringBuilder("BOARD");
+        for (int i = 0; i < state.getCols(); i++) {
+            for (int j = 0; j < state.getRows(); j++) {
+                valueUpdate.append(' ').append(state.get(i, j));
             }
         }
-        sendCommunication(valueUpdate);
+        sendCommunication(valueUpdate.toString());
     }
 
     /**
@@ -77,9 +96,7 @@ public class MultiplayerGame extends Game implements CommunicationsListener {
      * @param pieces the number of pieces to be requested
      */
     public void fillPieces(int pieces) {
-        for (int i = 0; i < pieces; i++) {
-            sendCommunication("PIECE");
-        }
+        pieceSource.request(pieces);
     }
 
     /**
@@ -98,70 +115,65 @@ public class MultiplayerGame extends Game implements CommunicationsListener {
     public void receiveCommunication(String communication) {
         if (communication.startsWith("PIECE")) {
             var temp = communication.replace("PIECE ", "");
-            gamePieces.add(new Integer(temp));
+            pieceSource.add(Integer.parseInt(temp.trim()));
         } else if (communication.startsWith("SCORES")) {
-            Platform.runLater(() -> {scoreListWrapper.clear();});
             var temp = communication.replace("SCORES ", "");
             var scores = temp.split("\n");
+            var received = new ArrayList<Pair<String, Integer>>();
             for (String string : scores) {
                 var userScore = string.split(":");
-                var pair = new Pair<String, Integer>(userScore[0], new Integer(userScore[1]));
-                Platform.runLater(() -> {
-                    scoreListWrapper.add(pair);
-                });
+                received.add(new Pair<String, Integer>(userScore[0], new Integer(userScore[1])));
             }
-            Platform.runLater(() -> {scoreListWrapper.sort(Comparator.comparing(Pair<String, Integer>::getValue).reversed());});
+            received.sort(Comparator.comparing(Pair<String, Integer>::getValue).reversed());
+            //Only the latest scores are shown, however many arrive before the next pulse
+            FxUpdateQueue.getShared().submit(this, "scores", () -> scoreListWrapper.setAll(received));
         }
     }
 
     /**
-     * @return the current scores list
+     * Record the state the piece was placed in, which is still the latest published state
+     * @param piece the piece placed
+     * @param x the x coordinate it was placed at
+     * @param y the y coordinate it was placed at
      */
-    public SimpleListProperty<Pair<String, Integer>> getScoreList() {
-        return scoreListWrapper;
+    @Override
+    public void piecePlaced(GamePiece piece, int x, int y) {
+        synchronized (placements) {
+            placements.add(engine.getState());
+            drawn.add(pieceSource.getDealtCount());
+        }
+        super.piecePlaced(piece, x, y);
     }
-    
+
     /**
-     * Update and display the current piece on the current piece board
+     * @return the state before every piece placed so far was placed, in order
      */
-    public GamePiece spawnPiece() {
-        if (gamePieces.size() >= 2) {
-            GamePiece piece = GamePiece.createPiece(gamePieces.get(0));
-            currentPieceListener.updatePiece(piece);
-            gamePieces.remove(0);
-            return piece;
-        } else {
-            fillPieces(4);
-            synchronized(this) {
-                try {
-                    this.wait();
-                    return spawnPiece();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+    public List<GameState> getPlacements() {
+        synchronized (placements) {
+            return new ArrayList<>(placements);
         }
-        return null;
     }
 
     /**
-     * Update and display the next piece on the next piece board
+     * @return the number of pieces drawn before every piece placed so far was placed, in order
      */
-    public void nextPiece() {
-        if (gamePieces.size() >= 2) {
-            nextPiece = GamePiece.createPiece(gamePieces.get(0));
-            nextPieceListener.updatePiece(nextPiece);
-            gamePieces.remove(0);
-        } else {
-            fillPieces(4);
-            synchronized(this) {
-                try {
-                    this.wait();
-                    nextPiece();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+    public int[] getDrawn() {
+        synchronized (placements) {
+            return drawn.stream().mapToInt(Integer::intValue).toArray();
         }
     }
+
+    /**
+     * @return every piece drawn so far, in order
+     */
+    public int[] getDealt() {
+        return pieceSource.getDealt();
+    }
+
+    /**
+     * @return the current scores list
+     */
+    public SimpleListProperty<Pair<String, Integer>> getScoreList() {
+        return scoreListWrapper;
+    }
 }
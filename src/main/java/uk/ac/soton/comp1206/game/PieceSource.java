@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PieceSource supplies the piece number of every new piece drawn by a GameEngine.
+ *
+ * Sources that can be reproduced, such as a seeded or fixed sequence, make it possible to replay a game or to play
+ * several games on exactly the same pieces.
+ */
+public interface PieceSource {
+
+    /**
+     * Get the next piece number
+     * @return a piece number from 0 to {@link GamePiece#PIECES}
+     */
+    public int nextPiece();
+}
@@ -0,0 +1,161 @@
+package uk.ac.soton.comp1206.game;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The PinningMonitor counts the times a virtual thread pinned its carrier thread, by streaming the Flight Recorder's
+ * jdk.VirtualThreadPinned events. A virtual thread is pinned when it blocks while it cannot unmount, most often inside
+ * a synchronized block or method, and every pinned virtual thread holds a whole carrier thread until it wakes up.
+ *
+ * The count, the total and longest pinned time, and the first frame of the code that pinned are kept. The stack of
+ * the first few pins is logged, to find where they come from.
+ *
+ * On a runtime without virtual threads or without the Flight Recorder, the monitor reports itself unsupported and
+ * counts nothing.
+ */
+public class PinningMonitor {
+
+    private static final Logger logger = LogManager.getLogger(PinningMonitor.class);
+
+    /**
+     * The name of the event recorded when a virtual thread is pinned
+     */
+    public static final String EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * The number of pins whose stack is logged
+     */
+    private static final int LOGGED_PINS = 5;
+
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    private final LongAdder pins = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final AtomicLong longestNanos = new AtomicLong();
+    private volatile String lastFrame = "";
+
+    /**
+     * Create a new monitor counting pins that last at least the given time
+     * @param threshold the shortest pin counted
+     */
+    public PinningMonitor(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return true if this runtime records pinned virtual threads
+     */
+    public static boolean isSupported() {
+        try {
+            return FlightRecorder.isAvailable() && FlightRecorder.getFlightRecorder().getEventTypes().stream()
+                .anyMatch(type -> type.getName().equals(EVENT));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Start counting pins, in the background
+     * @return true if the monitor started, false if pins cannot be recorded on this runtime
+     */
+    public boolean start() {
+        if (!isSupported()) {
+            logger.info("Pinned virtual threads are not recorded on this runtime");
+            return false;
+        }
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::pinned);
+        stream.startAsync();
+        logger.info("Counting virtual threads pinned for {} ms or more", threshold.toMillis());
+        return true;
+    }
+
+    /**
+     * Stop counting pins
+     */
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+            logger.info("Pinning monitor stopped: {}", this);
+        }
+    }
+
+    /**
+     * Count a pin
+     * @param event the event recorded
+     */
+    private void pinned(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        pins.increment();
+        pinnedNanos.add(nanos);
+        longestNanos.accumulateAndGet(nanos, Math::max);
+
+        var stack = event.getStackTrace();
+        if (stack == null || stack.getFrames().isEmpty()) return;
+        lastFrame = describe(stack.getFrames().get(0));
+        if (pins.sum() <= LOGGED_PINS) {
+            var trace = new StringBuilder();
+            for (var frame : stack.getFrames()) {
+                trace.append("\n    at ").append(describe(frame));
+            }
+            logger.warn("Virtual thread pinned for {} us{}", nanos / 1000, trace);
+        }
+    }
+
+    /**
+     * Describe a frame of a recorded stack
+     * @param frame the frame
+     * @return the class, method and line
+     */
+    private static String describe(RecordedFrame frame) {
+        var method = frame.getMethod();
+        return method.getType().getName() + "." + method.getName() + ":" + frame.getLineNumber();
+    }
+
+    /**
+     * @return the number of pins counted
+     */
+    public long getPins() {
+        return pins.sum();
+    }
+
+    /**
+     * @return the total time virtual threads were pinned, in nanoseconds
+     */
+    public long getPinnedTime() {
+        return pinnedNanos.sum();
+    }
+
+    /**
+     * @return the longest time a virtual thread was pinned, in nanoseconds
+     */
+    public long getLongestPin() {
+        return longestNanos.get();
+    }
+
+    /**
+     * @return the method that was blocking in the last pin counted, or an empty string if there were none
+     */
+    public String getLastFrame() {
+        return lastFrame;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pins, %.1f ms pinned in all, longest %.1f ms%s", getPins(), getPinnedTime() / 1e6,
+            getLongestPin() / 1e6, lastFrame.isEmpty() ? "" : ", last at " + lastFrame);
+    }
+}
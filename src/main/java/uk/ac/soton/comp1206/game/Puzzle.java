@@ -0,0 +1,230 @@
+package uk.ac.soton.comp1206.game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Puzzle is a board with some blocks already filled and a fixed sequence of pieces that, placed in order without
+ * swapping, can clear the board completely. Puzzles are made by the PuzzleGenerator and played in the PuzzleScene.
+ *
+ * Puzzles are stored many to a file. The file starts with a header of the magic number and the format version, then
+ * the number of columns, rows and puzzles. Every puzzle is then stored as its filled blocks as a long, with bit
+ * y * cols + x set for every filled block, its number of solutions and number of pieces as bytes, and its pieces two to
+ * a byte, the first in the low 4 bits. A puzzle of 4 pieces takes 12 bytes.
+ */
+public class Puzzle {
+
+    private static final int MAGIC = 0x54505A4C;
+    private static final int VERSION = 1;
+
+    /**
+     * The largest number of blocks a puzzle can have
+     */
+    public static final int MAX_BLOCKS = 64;
+
+    /**
+     * The system property naming the directory puzzle files are loaded from
+     */
+    public static final String DIRECTORY_PROPERTY = "tetrecs.puzzles";
+
+    private final int cols;
+    private final int rows;
+    private final long board;
+    private final int[] pieces;
+    private final int solutions;
+
+    /**
+     * Create a new puzzle
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param board the filled blocks, with bit y * cols + x set for every filled block
+     * @param pieces the piece numbers to be played, in order
+     * @param solutions the number of ways to clear the board, or 0 if unknown
+     */
+    public Puzzle(int cols, int rows, long board, int[] pieces, int solutions) {
+        if (cols * rows > MAX_BLOCKS) {
+            throw new IllegalArgumentException("Puzzles can have at most " + MAX_BLOCKS + " blocks");
+        }
+        for (int piece : pieces) {
+            if (piece < 0 || piece >= GamePiece.PIECES) {
+                throw new IndexOutOfBoundsException("No such piece: " + piece);
+            }
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.board = board;
+        this.pieces = pieces.clone();
+        this.solutions = solutions;
+    }
+
+    /**
+     * Check whether a block starts filled
+     * @param x column
+     * @param y row
+     * @return true if the block is filled
+     */
+    public boolean isFilled(int x, int y) {
+        return (board >>> (y * cols + x) & 1) != 0;
+    }
+
+    /**
+     * @return the filled blocks, with bit y * cols + x set for every filled block
+     */
+    public long getBoard() {
+        return board;
+    }
+
+    /**
+     * @return a copy of the piece numbers to be played, in order
+     */
+    public int[] getPieces() {
+        return pieces.clone();
+    }
+
+    /**
+     * @return the number of pieces to be played
+     */
+    public int getPieceCount() {
+        return pieces.length;
+    }
+
+    /**
+     * @return the number of ways to clear the board, or 0 if unknown
+     */
+    public int getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the file name of the puzzles for a grid size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the file name
+     */
+    public static String fileName(int cols, int rows) {
+        return "puzzles-" + cols + "x" + rows + ".bin";
+    }
+
+    /**
+     * Load the puzzles for a grid size: from the puzzle directory if a file has been generated there, otherwise the
+     * puzzles shipped with the game
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the puzzles
+     * @throws IOException if there are no puzzles for the size or they cannot be read
+     */
+    public static List<Puzzle> load(int cols, int rows) throws IOException {
+        var path = Paths.get(System.getProperty(DIRECTORY_PROPERTY, "."), fileName(cols, rows));
+        if (Files.exists(path)) {
+            try (var input = new BufferedInputStream(Files.newInputStream(path))) {
+                return read(input);
+            }
+        }
+        try (var input = Puzzle.class.getResourceAsStream("/puzzles/" + fileName(cols, rows))) {
+            if (input == null) {
+                throw new IOException("No puzzles for " + cols + " x " + rows);
+            }
+            return read(new BufferedInputStream(input));
+        }
+    }
+
+    /**
+     * Write puzzles of one grid size
+     * @param output the stream to write to
+     * @param puzzles the puzzles
+     * @throws IOException if they cannot be written
+     */
+    public static void write(OutputStream output, List<Puzzle> puzzles) throws IOException {
+        var data = new DataOutputStream(output);
+        int cols = puzzles.isEmpty() ? 0 : puzzles.get(0).cols;
+        int rows = puzzles.isEmpty() ? 0 : puzzles.get(0).rows;
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(cols);
+        data.writeByte(rows);
+        data.writeInt(puzzles.size());
+        for (var puzzle : puzzles) {
+            if (puzzle.cols != cols || puzzle.rows != rows) {
+                throw new IllegalArgumentException("Every puzzle of a file must have the same size");
+            }
+            data.writeLong(puzzle.board);
+            data.writeByte(Math.min(puzzle.solutions, 255));
+            data.writeByte(puzzle.pieces.length);
+            for (int i = 0; i < puzzle.pieces.length; i += 2) {
+                int high = i + 1 < puzzle.pieces.length ? puzzle.pieces[i + 1] : 0;
+                data.writeByte(high << 4 | puzzle.pieces[i]);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Read puzzles written by {@link #write(OutputStream, List)}
+     * @param input the stream to read from
+     * @return the puzzles
+     * @throws IOException if they cannot be read or the stream is not a puzzle file
+     */
+    public static List<Puzzle> read(InputStream input) throws IOException {
+        var data = new DataInputStream(input);
+        if (data.readInt() != MAGIC || data.readUnsignedByte() != VERSION) {
+            throw new IOException("Not a puzzle file");
+        }
+        int cols = data.readUnsignedByte();
+        int rows = data.readUnsignedByte();
+        int count = data.readInt();
+        if (cols * rows > MAX_BLOCKS || count < 0) {
+            throw new IOException("Corrupt puzzle file header");
+        }
+
+        var puzzles = new ArrayList<Puzzle>(count);
+        for (int p = 0; p < count; p++) {
+            long board = data.readLong();
+            int solutions = data.readUnsignedByte();
+            var pieces = new int[data.readUnsignedByte()];
+            for (int i = 0; i < pieces.length; i += 2) {
+                int pair = data.readUnsignedByte();
+                pieces[i] = pair & 0xf;
+                if (i + 1 < pieces.length) pieces[i + 1] = pair >>> 4;
+            }
+            try {
+                puzzles.add(new Puzzle(cols, rows, board, pieces, solutions));
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Corrupt puzzle " + p + ": " + e.getMessage());
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * Return a string representation of this puzzle
+     * @return the board and pieces
+     */
+    @Override
+    public String toString() {
+        return String.format("Puzzle [board=%016x, pieces=%s, solutions=%d]", board, Arrays.toString(pieces),
+            solutions);
+    }
+}
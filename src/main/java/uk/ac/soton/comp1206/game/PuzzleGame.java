@@ -0,0 +1,127 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.component.Multimedia;
+
+/**
+ * A PuzzleGame plays a Puzzle: the game starts with the puzzle's blocks filled and deals its pieces in order. There
+ * is no time limit and the pieces cannot be swapped. Once every piece has been placed the puzzle is finished, and it
+ * is solved if the board is empty.
+ */
+public class PuzzleGame extends Game {
+
+    private static final Logger logger = LogManager.getLogger(PuzzleGame.class);
+
+    private final Puzzle puzzle;
+
+    /**
+     * The number of pieces placed so far. Only used on the game thread.
+     */
+    private int placed;
+
+    private final SimpleIntegerProperty piecesLeft = new SimpleIntegerProperty();
+    private final SimpleBooleanProperty finished = new SimpleBooleanProperty(false);
+    private final SimpleBooleanProperty solved = new SimpleBooleanProperty(false);
+
+    /**
+     * Create a new game of a puzzle
+     * @param puzzle the puzzle to play
+     */
+    public PuzzleGame(Puzzle puzzle) {
+        super(puzzle.getCols(), puzzle.getRows());
+        this.puzzle = puzzle;
+        piecesLeft.set(puzzle.getPieceCount());
+    }
+
+    /**
+     * Start the puzzle from its first piece
+     */
+    @Override
+    public void initialiseGame() {
+        logger.info("Initialising puzzle {}", puzzle);
+        execute(() -> {
+            placed = 0;
+            engine.start(puzzle);
+            int left = puzzle.getPieceCount();
+            ui(() -> {
+                piecesLeft.set(left);
+                finished.set(false);
+                solved.set(false);
+            });
+        });
+    }
+
+    /**
+     * A puzzle has no time limit, so there is no game loop to restart
+     */
+    @Override
+    public void restartGameLoop() {
+    }
+
+    /**
+     * The pieces of a puzzle must be played in order, so they cannot be swapped
+     */
+    @Override
+    public void swapCurrentPiece() {
+        logger.info("Pieces cannot be swapped in a puzzle");
+    }
+
+    /**
+     * Place the current piece, unless every piece of the puzzle has already been placed. Once placed, count the piece
+     * and check whether the puzzle is finished. Runs on the game thread.
+     * @param x the x coordinate to place the game block at
+     * @param y the y coordinate to place the game block at
+     * @return true if the block was placed successfully
+     */
+    @Override
+    protected boolean place(int x, int y) {
+        if (placed >= puzzle.getPieceCount() || !super.place(x, y)) return false;
+
+        placed++;
+        int left = puzzle.getPieceCount() - placed;
+        boolean empty = engine.getGrid().getOccupancy() == 0;
+        ui(() -> piecesLeft.set(left));
+        if (left == 0) {
+            logger.info(empty ? "Puzzle solved" : "Puzzle failed");
+            ui(() -> {
+                Multimedia.playAudio(empty ? "level.wav" : "fail.wav");
+                solved.set(empty);
+                finished.set(true);
+            });
+        }
+        return true;
+    }
+
+    /**
+     * @return the puzzle being played
+     */
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    /**
+     * @return the number of pieces still to be placed
+     */
+    public SimpleIntegerProperty getPiecesLeftProperty() {
+        return piecesLeft;
+    }
+
+    /**
+     * @return whether every piece has been placed
+     */
+    public SimpleBooleanProperty getFinishedProperty() {
+        return finished;
+    }
+
+    /**
+     * @return whether the board was cleared by the last piece
+     */
+    public SimpleBooleanProperty getSolvedProperty() {
+        return solved;
+    }
+}
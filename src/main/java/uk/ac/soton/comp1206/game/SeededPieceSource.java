@@ -0,0 +1,53 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * A PieceSource drawing pieces uniformly at random from a seeded generator. Two sources with the same seed produce the
+ * same pieces, and drawing a piece does not allocate.
+ */
+public class SeededPieceSource implements PieceSource {
+
+    /**
+     * The seed the generator was created with
+     */
+    private final long seed;
+
+    /**
+     * The generator the pieces are drawn from
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Create a new source with a random seed
+     */
+    public SeededPieceSource() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Create a new source with the given seed
+     * @param seed the seed
+     */
+    public SeededPieceSource(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Draw the next piece number
+     * @return a piece number from 0 to {@link GamePiece#PIECES}
+     */
+    @Override
+    public int nextPiece() {
+        return random.nextInt(GamePiece.PIECES);
+    }
+
+    /**
+     * Get the seed of this source, which can be used to replay the same pieces
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+}
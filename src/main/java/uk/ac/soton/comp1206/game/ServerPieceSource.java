@@ -0,0 +1,159 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.network.Communicator;
+
+/**
+ * A PieceSource playing the pieces issued by the server in a multiplayer game. Every player in the channel gets the
+ * same pieces in the same order.
+ *
+ * Pieces are requested with PIECE and added as the replies arrive. Drawing a piece waits for more to arrive if fewer
+ * than two are left, first requesting just enough to have {@link #AHEAD} pieces received or on their way. The wait is
+ * on a lock's condition rather than an object monitor, so a session running on a virtual thread unmounts while it
+ * waits instead of pinning its carrier thread.
+ *
+ * Every piece drawn is recorded, so a finished game can be played again with the same pieces, for example by the
+ * Oracle.
+ */
+public class ServerPieceSource implements PieceSource {
+
+    private static final Logger logger = LogManager.getLogger(ServerPieceSource.class);
+
+    /**
+     * The number of pieces kept received or requested ahead of the game when it runs short
+     */
+    public static final int AHEAD = 4;
+
+    /**
+     * The communicator used to request pieces
+     */
+    private final Communicator communicator;
+
+    /**
+     * The pieces received from the server and not played yet
+     */
+    private final ArrayDeque<Integer> pieces = new ArrayDeque<>();
+
+    /**
+     * Guards every field below and the pieces, and is signalled when pieces arrive
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition arrived = lock.newCondition();
+
+    /**
+     * The number of pieces requested and not received yet
+     */
+    private int requested;
+
+    /**
+     * Every piece drawn, in order
+     */
+    private int[] dealt = new int[64];
+    private int dealtCount;
+
+    /**
+     * Create a new source requesting pieces through the given communicator
+     * @param communicator the communicator object
+     */
+    public ServerPieceSource(Communicator communicator) {
+        this.communicator = communicator;
+    }
+
+    /**
+     * Request pieces from the server
+     * @param count the number of pieces to be requested
+     */
+    public void request(int count) {
+        lock.lock();
+        try {
+            requested += count;
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < count; i++) {
+            communicator.send("PIECE");
+        }
+    }
+
+    /**
+     * Add a piece received from the server and wake up anything waiting for it
+     * @param piece the piece number
+     */
+    public void add(int piece) {
+        lock.lock();
+        try {
+            pieces.add(piece);
+            requested = Math.max(0, requested - 1);
+            arrived.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the next piece received from the server, requesting more and waiting for them if fewer than two are left.
+     * Pieces already requested are counted, so waking up before they all arrive does not request them again.
+     * @return the piece number
+     */
+    @Override
+    public int nextPiece() {
+        lock.lock();
+        try {
+            int shortfall = AHEAD - pieces.size() - requested;
+            if (pieces.size() < 2 && shortfall > 0) {
+                request(shortfall);
+            }
+            while (pieces.size() < 2) {
+                try {
+                    arrived.await();
+                } catch (InterruptedException e) {
+                    logger.error("Interrupted while waiting for pieces");
+                    Thread.currentThread().interrupt();
+                    if (pieces.isEmpty()) {
+                        throw new IllegalStateException("No pieces received from the server");
+                    }
+                    break;
+                }
+            }
+            int piece = pieces.remove();
+            if (dealtCount == dealt.length) {
+                dealt = Arrays.copyOf(dealt, dealtCount * 2);
+            }
+            dealt[dealtCount++] = piece;
+            return piece;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return every piece drawn so far, in order
+     */
+    public int[] getDealt() {
+        lock.lock();
+        try {
+            return Arrays.copyOf(dealt, dealtCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of pieces drawn so far
+     */
+    public int getDealtCount() {
+        lock.lock();
+        try {
+            return dealtCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
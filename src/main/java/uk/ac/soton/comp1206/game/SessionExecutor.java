@@ -0,0 +1,159 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The SessionExecutor runs headless sessions, such as bots playing a MultiplayerGame or simulated players, one thread
+ * per session, so a session can be written as plain blocking code that sleeps, waits for pieces and waits for messages.
+ *
+ * Where the Java runtime has virtual threads, every session gets a virtual thread of its own. A virtual thread that
+ * blocks unmounts from its carrier, so a single JVM can host tens of thousands of sessions on a handful of platform
+ * threads. Virtual threads are looked up by reflection, so the game still builds and runs on older runtimes, where
+ * every session gets a daemon platform thread instead.
+ *
+ * A virtual thread blocking inside a synchronized block or method cannot unmount and pins its carrier. Watch for this
+ * with a PinningMonitor.
+ */
+public class SessionExecutor {
+
+    private static final Logger logger = LogManager.getLogger(SessionExecutor.class);
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Create a new executor using virtual threads if the runtime has them
+     */
+    public SessionExecutor() {
+        this(true);
+    }
+
+    /**
+     * Create a new executor
+     * @param preferVirtual true to use virtual threads if the runtime has them, false to always use platform threads
+     */
+    public SessionExecutor(boolean preferVirtual) {
+        var executor = preferVirtual ? newVirtualExecutor() : null;
+        this.virtual = executor != null;
+        if (executor == null) {
+            var count = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "Session " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.executor = executor;
+        logger.info("Running sessions on {} threads", virtual ? "virtual" : "platform");
+    }
+
+    /**
+     * Create an executor starting a virtual thread per task, if the runtime has virtual threads
+     * @return the executor, or null if there are no virtual threads
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //Either there are no virtual threads, or they are a preview feature that is not enabled
+            logger.info("Virtual threads are not available: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Start a session on a thread of its own
+     * @param session the session to run
+     * @return a future completed when the session ends
+     */
+    public Future<?> start(Runnable session) {
+        started.increment();
+        return executor.submit(() -> {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                session.run();
+                finished.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Session failed", e);
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Stop taking sessions and wait for the running ones to end
+     * @param timeout the longest time to wait
+     * @param unit the unit of the timeout
+     * @return true if every session ended in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return true if sessions run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return the number of sessions running
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return the most sessions that have run at once
+     */
+    public int getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * @return the number of sessions started
+     */
+    public long getStarted() {
+        return started.sum();
+    }
+
+    /**
+     * @return the number of sessions that ended normally
+     */
+    public long getFinished() {
+        return finished.sum();
+    }
+
+    /**
+     * @return the number of sessions that ended with an exception
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s threads: %d sessions started, %d running, %d at most, %d finished, %d failed",
+            virtual ? "virtual" : "platform", getStarted(), getActive(), getPeak(), getFinished(), getFailed());
+    }
+}
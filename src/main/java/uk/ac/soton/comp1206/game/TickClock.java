@@ -0,0 +1,451 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The TickClock keeps a game's time. Game time advances in whole ticks of {@link #TICK_MILLIS} milliseconds, and
+ * everything timed in a game, such as the game loop and the timer bar showing it, is measured in ticks of the game's
+ * clock rather than read from the wall clock. A game given the same moves at the same ticks plays out the same way,
+ * however fast or slowly it was really played.
+ *
+ * A clock runs in real time at any speed from {@link #MIN_SPEED} to {@link #MAX_SPEED}, can be paused and stepped on
+ * by hand, or can run unlimited. An unlimited clock only moves when its owner steps it on or waits with
+ * {@link #sleep(long)}, which jumps straight to the end of the wait, so headless games never wait at all. Scheduling a
+ * timeout never moves the clock, so a game's loop only runs out when its owner's time reaches the deadline.
+ *
+ * A clock owns no thread. The current tick is worked out from the time passed since the clock was last paused or
+ * changed speed, and the shared HashedWheelTimer wakes the clock when its next timeout is due. Timeouts never run
+ * before their tick. Their tasks run on the timer thread, or on the thread that stepped the clock on or slept on an
+ * unlimited clock, and must be quick, for example submitting a command to a CommandQueue.
+ */
+public class TickClock {
+
+    private static final Logger logger = LogManager.getLogger(TickClock.class);
+
+    /**
+     * The length of a tick, in milliseconds of game time
+     */
+    public static final int TICK_MILLIS = 10;
+
+    /**
+     * The slowest a clock runs, as a multiple of real time
+     */
+    public static final double MIN_SPEED = 0.5;
+
+    /**
+     * The fastest a clock runs in real time, as a multiple of real time
+     */
+    public static final double MAX_SPEED = 100;
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+    /**
+     * The timeouts waiting to run, as a binary heap with the earliest first, in the order they were scheduled for the
+     * same tick. Every timeout knows where it is in the heap, so it is moved or removed without searching for it, and
+     * nothing is allocated unless the heap has to grow.
+     */
+    private Timeout[] pending = new Timeout[8];
+    private int size;
+
+    /**
+     * Wakes the clock when its earliest timeout is due in real time
+     */
+    private final HashedWheelTimer.Timeout wake = HashedWheelTimer.getShared().newTimeout(this::wake);
+
+    //Guarded by the clock. The tick and time when the clock was last paused, resumed, stepped or changed speed.
+    private long anchorTick;
+    private long anchorTime = System.nanoTime();
+    private double speed = 1;
+    private boolean paused;
+    private boolean unlimited;
+
+    private long sequence;
+    private long scheduled;
+    private long fired;
+
+    /**
+     * Convert a time to the number of ticks it lasts, rounding up
+     * @param millis the time in milliseconds
+     * @return the number of ticks
+     */
+    public static long toTicks(long millis) {
+        return Math.floorDiv(millis + TICK_MILLIS - 1, TICK_MILLIS);
+    }
+
+    /**
+     * Create a timeout that runs a task when its tick comes. It is not scheduled until {@link Timeout#schedule} is
+     * called.
+     * @param task the task to run
+     * @return the timeout
+     */
+    public Timeout newTimeout(Runnable task) {
+        return new Timeout(task);
+    }
+
+    /**
+     * @return the current tick
+     */
+    public synchronized long getTick() {
+        return currentTick();
+    }
+
+    /**
+     * Work out the current tick. Must hold the clock's lock.
+     * @return the current tick
+     */
+    private long currentTick() {
+        if (paused || unlimited) return anchorTick;
+        return anchorTick + (long) ((System.nanoTime() - anchorTime) * speed / TICK_NANOS);
+    }
+
+    /**
+     * Start measuring real time again from now, before the clock's speed or state changes. Must hold the clock's lock.
+     */
+    private void anchor() {
+        anchorTick = currentTick();
+        anchorTime = System.nanoTime();
+    }
+
+    /**
+     * Set the speed of the clock in real time, as a multiple of real time
+     * @param speed the speed, limited to between {@link #MIN_SPEED} and {@link #MAX_SPEED}
+     */
+    public void setSpeed(double speed) {
+        synchronized (this) {
+            anchor();
+            this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+            logger.info("Clock running at {}x", this.speed);
+            scheduleWake();
+        }
+    }
+
+    /**
+     * @return the speed of the clock in real time
+     */
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Stop the clock until it is resumed. A paused clock can still be stepped on by hand.
+     */
+    public void pause() {
+        synchronized (this) {
+            anchor();
+            paused = true;
+            logger.info("Clock paused at tick {}", anchorTick);
+            scheduleWake();
+        }
+    }
+
+    /**
+     * Start a paused clock again from the tick it was paused at
+     */
+    public void resume() {
+        synchronized (this) {
+            anchor();
+            paused = false;
+            logger.info("Clock resumed at tick {}", anchorTick);
+            scheduleWake();
+        }
+    }
+
+    /**
+     * @return true if the clock is paused
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Run the clock as fast as possible, moving only when it is stepped on or slept on, or go back to real time.
+     * Timeouts already waiting stay at their ticks.
+     * @param unlimited true to run the clock as fast as possible
+     */
+    public void setUnlimited(boolean unlimited) {
+        synchronized (this) {
+            anchor();
+            this.unlimited = unlimited;
+            logger.info("Clock running {}", unlimited ? "unlimited" : "in real time");
+        }
+        wake();
+    }
+
+    /**
+     * @return true if the clock runs as fast as possible
+     */
+    public synchronized boolean isUnlimited() {
+        return unlimited;
+    }
+
+    /**
+     * Move the clock on, running every timeout due by then. Works whether or not the clock is paused.
+     * @param ticks the number of ticks to move on
+     */
+    public void step(long ticks) {
+        synchronized (this) {
+            anchor();
+            anchorTick += ticks;
+        }
+        wake();
+    }
+
+    /**
+     * Wait until a number of ticks has passed. An unlimited clock moves on to the end of the wait, running every
+     * timeout due by then, and returns straight away.
+     * @param ticks the number of ticks to wait
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void sleep(long ticks) throws InterruptedException {
+        var done = new CountDownLatch(1);
+        var timeout = newTimeout(done::countDown);
+        boolean jump;
+        synchronized (this) {
+            jump = timeout.reschedule(currentTick() + ticks);
+            if (unlimited) {
+                anchorTick = Math.max(anchorTick, timeout.deadline);
+                jump = true;
+            }
+        }
+        if (jump) runDue();
+        try {
+            done.await();
+        } finally {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Schedule the wake up for the earliest timeout, when its tick comes in real time. Must hold the clock's lock.
+     */
+    private void scheduleWake() {
+        if (paused || unlimited || size == 0) {
+            wake.cancel();
+            return;
+        }
+        long due = anchorTime + (long) ((pending[0].deadline - anchorTick) * TICK_NANOS / speed);
+        wake.schedule(Math.max(0, due - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Run the timeouts that are due, then wait for the next. Runs on the timer thread, or on the thread that moved the
+     * clock on.
+     */
+    private void wake() {
+        runDue();
+        synchronized (this) {
+            scheduleWake();
+        }
+    }
+
+    /**
+     * Run the timeouts due by the current tick, earliest first. Each is taken from the heap under the clock's lock and
+     * run outside it, so a task can schedule timeouts of its own. Must not hold the clock's lock.
+     */
+    private void runDue() {
+        while (true) {
+            Timeout timeout;
+            synchronized (this) {
+                if (size == 0 || pending[0].deadline > currentTick()) return;
+                timeout = pending[0];
+                remove(timeout);
+                fired++;
+            }
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                logger.error("Timeout failed", e);
+            }
+        }
+    }
+
+    /**
+     * Check whether a timeout runs before another. Must hold the clock's lock.
+     * @param a a timeout
+     * @param b another timeout
+     * @return true if a runs first
+     */
+    private static boolean before(Timeout a, Timeout b) {
+        return a.deadline < b.deadline || a.deadline == b.deadline && a.sequence < b.sequence;
+    }
+
+    /**
+     * Add a timeout to the heap. Must hold the clock's lock.
+     * @param timeout a timeout not in the heap
+     */
+    private void add(Timeout timeout) {
+        if (size == pending.length) {
+            pending = Arrays.copyOf(pending, size * 2);
+        }
+        timeout.index = size++;
+        pending[timeout.index] = timeout;
+        siftUp(timeout.index);
+    }
+
+    /**
+     * Remove a timeout from the heap. Must hold the clock's lock.
+     * @param timeout a timeout in the heap
+     */
+    private void remove(Timeout timeout) {
+        int index = timeout.index;
+        var last = pending[--size];
+        pending[size] = null;
+        timeout.index = -1;
+        if (last != timeout) {
+            pending[index] = last;
+            last.index = index;
+            moved(index);
+        }
+    }
+
+    /**
+     * Restore the order of the heap after the timeout at an index has changed. Must hold the clock's lock.
+     * @param index the index
+     */
+    private void moved(int index) {
+        if (index > 0 && before(pending[index], pending[(index - 1) / 2])) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    /**
+     * Move the timeout at an index up the heap until its parent runs first. Must hold the clock's lock.
+     * @param index the index
+     */
+    private void siftUp(int index) {
+        var timeout = pending[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!before(timeout, pending[parent])) break;
+            pending[index] = pending[parent];
+            pending[index].index = index;
+            index = parent;
+        }
+        pending[index] = timeout;
+        timeout.index = index;
+    }
+
+    /**
+     * Move the timeout at an index down the heap until it runs before its children. Must hold the clock's lock.
+     * @param index the index
+     */
+    private void siftDown(int index) {
+        var timeout = pending[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && before(pending[child + 1], pending[child])) child++;
+            if (!before(pending[child], timeout)) break;
+            pending[index] = pending[child];
+            pending[index].index = index;
+            index = child;
+        }
+        pending[index] = timeout;
+        timeout.index = index;
+    }
+
+    @Override
+    public synchronized String toString() {
+        var state = paused ? "paused" : unlimited ? "unlimited" : speed + "x";
+        return String.format("tick %d, %s, %d scheduled, %d fired, %d pending", currentTick(), state, scheduled, fired,
+            size);
+    }
+
+    /**
+     * A task run once its tick comes, which can be rescheduled or cancelled any number of times
+     */
+    public class Timeout {
+
+        private final Runnable task;
+
+        //Guarded by the clock. The index is where the timeout is in the heap, or -1 if it is not scheduled.
+        private long deadline;
+        private long sequence;
+        private int index = -1;
+
+        /**
+         * Create a new unscheduled timeout
+         * @param task the task to run when it expires
+         */
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Schedule the task to run a number of ticks from now, replacing the tick it was scheduled for if it is
+         * already scheduled
+         * @param ticks the number of ticks
+         */
+        public void schedule(long ticks) {
+            boolean due;
+            synchronized (TickClock.this) {
+                due = reschedule(currentTick() + ticks);
+            }
+            if (due) runDue();
+        }
+
+        /**
+         * Schedule the task to run at a tick, replacing the tick it was scheduled for if it is already scheduled. A
+         * tick already passed runs the task as soon as possible.
+         * @param tick the tick
+         */
+        public void scheduleAt(long tick) {
+            boolean due;
+            synchronized (TickClock.this) {
+                due = reschedule(tick);
+            }
+            if (due) runDue();
+        }
+
+        /**
+         * Move the timeout to a tick, in place if it is already in the heap. Must hold the clock's lock.
+         * @param tick the tick
+         * @return true if the clock is unlimited and the tick has already passed, so the timeout must be run straight
+         * away rather than waiting for the clock to wake
+         */
+        private boolean reschedule(long tick) {
+            deadline = tick;
+            sequence = ++TickClock.this.sequence;
+            scheduled++;
+            if (index < 0) {
+                add(this);
+            } else {
+                moved(index);
+            }
+            if (unlimited) {
+                return tick <= anchorTick;
+            }
+            if (pending[0] == this) {
+                scheduleWake();
+            }
+            return false;
+        }
+
+        /**
+         * Cancel the task if it has not run yet
+         */
+        public void cancel() {
+            synchronized (TickClock.this) {
+                if (index >= 0) {
+                    remove(this);
+                }
+            }
+        }
+
+        /**
+         * @return true if the task is waiting to run
+         */
+        public boolean isScheduled() {
+            synchronized (TickClock.this) {
+                return index >= 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Zobrist keys for board occupancy. Every block index y * cols + x has a fixed random 64 bit key, and the key of a
+ * board is the xor of the keys of its filled blocks. Filling or emptying a block changes the key by one xor, so the
+ * Grid keeps its key up to date as it changes.
+ *
+ * Block keys are generated by mixing the index rather than stored, so any grid size is supported. For boards of at
+ * most 64 blocks held as a single long, {@link #hash(long)} looks the key up a byte at a time.
+ */
+public class Zobrist {
+
+    /**
+     * The xor of the keys of every combination of 8 blocks, for each byte of a 64 block board
+     */
+    private static final long[][] BYTE_KEYS = new long[8][256];
+
+    static {
+        for (int part = 0; part < 8; part++) {
+            for (int value = 1; value < 256; value++) {
+                //Every value is a smaller value plus its lowest bit
+                int low = Integer.numberOfTrailingZeros(value);
+                BYTE_KEYS[part][value] = BYTE_KEYS[part][value & (value - 1)] ^ block(part * 8 + low);
+            }
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Get the key of a block
+     * @param index the block index, y * cols + x
+     * @return the key
+     */
+    public static long block(int index) {
+        return mix64((index + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Get the key of a board of at most 64 blocks
+     * @param occupancy the board, with bit y * cols + x set for every filled block
+     * @return the xor of the keys of every filled block
+     */
+    public static long hash(long occupancy) {
+        long key = 0;
+        for (int part = 0; part < 8 && occupancy != 0; part++) {
+            key ^= BYTE_KEYS[part][(int) occupancy & 0xff];
+            occupancy >>>= 8;
+        }
+        return key;
+    }
+
+    /**
+     * Mix the bits of a long so every input bit affects every output bit
+     * @param value the value to mix
+     * @return the mixed value
+     */
+    public static long mix64(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
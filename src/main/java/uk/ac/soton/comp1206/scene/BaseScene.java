@@ -5,6 +5,7 @@ import javafx.scene.paint.Color;
 import uk.ac.soton.comp1206.event.KeyPressedListener;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.ui.Scheduler;
 
 /**
  * A Base Scene used in the game. Handles common functionality between all scenes.
@@ -16,12 +17,18 @@ public abstract class BaseScene implements KeyPressedListener {
     protected GamePane root;
     protected Scene scene;
 
+    /**
+     * The background and timed tasks of this scene, cancelled when the scene is left
+     */
+    protected final Scheduler.TaskGroup tasks;
+
     /**
      * Create a new scene, passing in the GameWindow the scene will be displayed in
      * @param gameWindow the game window
      */
     public BaseScene(GameWindow gameWindow) {
         this.gameWindow = gameWindow;
+        this.tasks = gameWindow.getScheduler().newGroup(getClass().getSimpleName());
     }
 
     /**
@@ -34,6 +41,13 @@ public abstract class BaseScene implements KeyPressedListener {
      */
     public abstract void build();
 
+    /**
+     * Clean up when the scene is left: cancel its tasks and stop anything else it started. Called by the GameWindow.
+     */
+    public void cleanup() {
+        tasks.cancel();
+    }
+
     /**
      * Create a new JavaFX scene using the root contained within this scene
      * @return JavaFX scene
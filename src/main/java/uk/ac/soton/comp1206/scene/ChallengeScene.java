@@ -1,9 +1,7 @@
 package uk.ac.soton.comp1206.scene;
 
+import javafx.animation.AnimationTimer;
 import javafx.animation.Interpolator;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
 import javafx.beans.value.WritableValue;
@@ -21,26 +19,27 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
-import javafx.util.Duration;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
-import java.util.HashSet;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import uk.ac.soton.comp1206.ai.HintEngine;
 import uk.ac.soton.comp1206.component.GameBlock;
-import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.Multimedia;
 import uk.ac.soton.comp1206.component.PieceBoard;
 import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.GameStateListener;
 import uk.ac.soton.comp1206.event.LineClearedListener;
+import uk.ac.soton.comp1206.game.CoordinateSet;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameState;
 import uk.ac.soton.comp1206.game.MultiplayerGame;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.ui.GamePane;
@@ -50,7 +49,7 @@ import uk.ac.soton.comp1206.ui.Components.*;
 /**
  * The Single Player challenge scene. Holds the UI for the single player challenge mode in the game.
  */
-public class ChallengeScene extends BaseScene implements LineClearedListener, GameLoopListener {
+public class ChallengeScene extends BaseScene implements LineClearedListener, GameLoopListener, GameStateListener {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
     protected Game game;
@@ -69,6 +68,26 @@ public class ChallengeScene extends BaseScene implements LineClearedListener, Ga
     protected Rectangle timer;
     protected VBox bottomUI;
 
+    /**
+     * Finds the placement hints, created the first time hints are shown and kept, with its table, for the scene
+     */
+    private HintEngine hintEngine;
+
+    /**
+     * Whether placement hints are shown
+     */
+    private boolean hintsShown;
+
+    /**
+     * Redraws the timer every frame from how much of the game loop has passed on the game's clock
+     */
+    private final AnimationTimer timerBar = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drawTimer(game.getGameLoopProgress());
+        }
+    };
+
     /**
      * Create a new Single Player challenge scene
      * @param gameWindow the Game Window
@@ -194,6 +213,7 @@ public class ChallengeScene extends BaseScene implements LineClearedListener, Ga
 
         game.setLineClearedListener(this);
         game.setGameLoopListener(this);
+        game.setStateListener(this);
         game.getGameOverProperty().addListener(e -> {endGame();});
         game.getScoreProperty().addListener(e -> {setCurrentHighScore();});
     }
@@ -300,8 +320,19 @@ public class ChallengeScene extends BaseScene implements LineClearedListener, Ga
             game.rotateCurrentPiece(1);
             logger.info("Rotating piece right");
             //Rotate piece right
+        } else if (event.getCode() == KeyCode.H) {
+            toggleHints();
+            //Show or hide placement hints
+        } else if (event.getCode() == KeyCode.P && !game.isMultiplayer()) {
+            togglePause();
+            //Pause or resume the game
+        } else if (event.getCode() == KeyCode.MINUS && !game.isMultiplayer()) {
+            changeSpeed(0.5);
+            //Slow the game down
+        } else if (event.getCode() == KeyCode.EQUALS && !game.isMultiplayer()) {
+            changeSpeed(2);
+            //Speed the game up
         } else if (event.getCode() == KeyCode.ESCAPE) {
-            game.shutdownGameLoop();
             if (game.isMultiplayer()) {
                 gameWindow.getCommunicator().send("DIE");
             }
@@ -338,34 +369,126 @@ public class ChallengeScene extends BaseScene implements LineClearedListener, Ga
      */
     public void endGame() {
         if (game.getGameOverProperty().get() == true) {
-            game.shutdownGameLoop();
             Platform.runLater(() -> gameWindow.openScoreScreen(game));
         }
     }
 
+    /**
+     * Stop the game loop, the timer and the hints when the scene is left
+     */
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        stopHints();
+        timerBar.stop();
+        game.shutdownGameLoop();
+    }
+
+    /**
+     * Pause the game's clock if it is running, or resume it if it is paused
+     */
+    public void togglePause() {
+        var clock = game.getClock();
+        if (clock.isPaused()) {
+            clock.resume();
+        } else {
+            clock.pause();
+        }
+    }
+
+    /**
+     * Change how fast the game's clock runs
+     * @param factor the number to multiply the speed by
+     */
+    public void changeSpeed(double factor) {
+        var clock = game.getClock();
+        clock.setSpeed(clock.getSpeed() * factor);
+    }
+
+    /**
+     * Show placement hints if they are hidden, or hide them if they are shown
+     */
+    public void toggleHints() {
+        if (hintsShown) {
+            stopHints();
+            return;
+        }
+        logger.info("Showing hints");
+        if (hintEngine == null) {
+            hintEngine = new HintEngine(tasks);
+        }
+        hintsShown = true;
+        requestHints(game.getShownState());
+    }
+
+    /**
+     * Hide placement hints and stop searching for them
+     */
+    public void stopHints() {
+        if (!hintsShown) return;
+        logger.info("Hiding hints");
+        hintsShown = false;
+        hintEngine.stop();
+        board.clearHints();
+    }
+
+    /**
+     * Search for hints for a state, replacing the hints shown once they are found
+     * @param state the state to find hints for
+     */
+    private void requestHints(GameState state) {
+        board.clearHints();
+        hintEngine.request(state, (found, hints) -> Platform.runLater(() -> {
+            //Drop hints for a state that has since changed, or found after hints were hidden
+            if (hintsShown && game.getShownState().getTick() == found.getTick()) {
+                board.showHints(found.getCurrentPiece().getShape(), hints);
+            }
+        }));
+    }
+
+    /**
+     * Search for new hints whenever a new state is shown, cancelling the search for the last one
+     * @param state the state being shown
+     */
+    @Override
+    public void stateShown(GameState state) {
+        if (hintsShown) {
+            requestHints(state);
+        }
+    }
+
     /**
      * Play the fade out animation when clearing a {@link Line}
      * @param blocks the blocks to be animated
      */
     @Override
-    public void fadeOut(HashSet<GameBlockCoordinate> blocks) {
+    public void fadeOut(CoordinateSet blocks) {
         board.fadeOut(blocks);
     }
 
     /**
-     * Handle the animation of the timer
-     * @param time the time for the animation to run
+     * Start drawing the timer when the game loop starts. The timer follows the game's clock, so it stops when the game
+     * is paused and keeps pace when the game is sped up.
+     * @param time the time for the game loop to run
      */
     @Override
     public void gameLoop(int time) {
-       Timeline timeline = new Timeline(
-        new KeyFrame(Duration.ZERO, new KeyValue(timer.fillProperty(), Color.GREEN)),
-        new KeyFrame(Duration.millis(time), new KeyValue(timer.widthProperty(), 0)),
-        new KeyFrame(Duration.millis(time*0.5), new KeyValue(timer.fillProperty(), Color.YELLOW)),
-        new KeyFrame(Duration.millis(time*0.8), new KeyValue(timer.fillProperty(), Color.RED)),
-        new KeyFrame(Duration.ZERO, new KeyValue(timer.widthProperty(), gameWindow.getWidth()))
-       );
-       timeline.play();
+        timerBar.start();
+    }
+
+    /**
+     * Draw the timer, shrinking from the full width and fading from green to yellow to red as the game loop runs out
+     * @param progress how much of the game loop has passed, from 0 to 1
+     */
+    private void drawTimer(double progress) {
+        timer.setWidth(gameWindow.getWidth() * (1 - progress));
+        if (progress < 0.5) {
+            timer.setFill(Color.GREEN.interpolate(Color.YELLOW, progress / 0.5));
+        } else if (progress < 0.8) {
+            timer.setFill(Color.YELLOW.interpolate(Color.RED, (progress - 0.5) / 0.3));
+        } else {
+            timer.setFill(Color.RED);
+        }
     }
 
     /**
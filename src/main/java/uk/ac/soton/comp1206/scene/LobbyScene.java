@@ -1,8 +1,6 @@
 package uk.ac.soton.comp1206.scene;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
@@ -22,6 +20,7 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.ui.FxUpdateQueue;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -31,8 +30,10 @@ public class LobbyScene extends BaseScene implements CommunicationsListener {
 
     private Communicator communicator;
 
-    private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private ScheduledFuture<?> timer;
+    /**
+     * Applies the changes to the UI made by messages from the server
+     */
+    private final FxUpdateQueue updates = FxUpdateQueue.getShared();
 
     private VBox channelList;
     private BorderPane mainPane;
@@ -56,7 +57,6 @@ public class LobbyScene extends BaseScene implements CommunicationsListener {
     @Override
     public void handleKeyPress(KeyEvent event) {
         if (event.getCode() == KeyCode.ESCAPE) {
-            timer.cancel(false);
             sendCommunication("PART");
             gameWindow.startMenu();
         } else if (event.getCode() == KeyCode.HOME) {
@@ -77,7 +77,8 @@ public class LobbyScene extends BaseScene implements CommunicationsListener {
     @Override
     public void initialise() {
         logger.info("Opening instructions");
-        timer = scheduler.scheduleWithFixedDelay(this::updateChannelsList, 0, 1000, TimeUnit.MILLISECONDS);
+        //Cancelled with the scene's other tasks when the lobby is left
+        tasks.scheduleWithFixedDelay(this::updateChannelsList, 0, 1000, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -227,59 +228,67 @@ public class LobbyScene extends BaseScene implements CommunicationsListener {
     public void receiveCommunication(String communication) {
         logger.info(communication);     
         if (communication.startsWith("CHANNELS")) {
-            Platform.runLater(() -> {channelList.getChildren().clear();});
             var temp = communication.split(" ");
             var channels = temp[1].split("\n");
+            var channelItems = new ArrayList<Text>();
             for (String string : channels) {
                 var channel = new Text(string);
                 channel.getStyleClass().add("channelItem");
                 channel.setOnMouseClicked(e -> {sendCommunication("JOIN " + channel.getText());});
-                Platform.runLater(() -> {channelList.getChildren().add(channel);});
+                channelItems.add(channel);
             }
+            //Only the latest list is shown, however many arrive before the next pulse
+            updates.submit(this, "channels", () -> {channelList.getChildren().setAll(channelItems);});
         } else if (communication.startsWith("JOIN")) {
             var channel = communication.split(" ")[1];
-            Platform.runLater(() -> {joinChannel(channel);});
+            updates.run(() -> {joinChannel(channel);});
         } else if (communication.startsWith("PARTED")) {
-            Platform.runLater(() -> {mainPane.setCenter(null);});
+            updates.run(() -> {mainPane.setCenter(null);});
         } else if (communication.startsWith("HOST")) {
-            Platform.runLater(() -> {startGameButton.setVisible(true);});
+            updates.run(() -> {startGameButton.setVisible(true);});
         } else if (communication.startsWith("MSG")) {
             var temp = communication.replace("MSG ", "");
             var userMessagesComponent = temp.split("\n");
+            var lines = new ArrayList<TextFlow>();
             for (String string : userMessagesComponent) {
                 var nickname = string.split(":")[0];
                 var message = string.split(":")[1];
-                Platform.runLater(() -> {
-                    var messageComponent = new Text(nickname + ": " + message);
-                    var textflow = new TextFlow();
-                    textflow.getChildren().add(messageComponent);
-                    textflow.getStyleClass().add("messages");
-                    messages.getChildren().add(textflow);
-                    chatWindow.applyCss();
-                    chatWindow.layout();
-                    chatWindow.setVvalue(1.0f);
-                });
+                var messageComponent = new Text(nickname + ": " + message);
+                var textflow = new TextFlow();
+                textflow.getChildren().add(messageComponent);
+                textflow.getStyleClass().add("messages");
+                lines.add(textflow);
             }
+            updates.run(() -> {messages.getChildren().addAll(lines);});
+            //Scroll to the bottom once for all the messages that arrived before the next pulse
+            updates.submit(this, "scroll", () -> {
+                chatWindow.applyCss();
+                chatWindow.layout();
+                chatWindow.setVvalue(1.0f);
+            });
         } else if (communication.startsWith("ERROR")) {
             var temp = communication.replace("ERROR ", "");
+            //An alert waits for the player, which cannot be done inside a pulse
             Platform.runLater(() -> {Alert error = new Alert(Alert.AlertType.ERROR, temp);
                 error.showAndWait();
             });
         } else if (communication.startsWith("USERS")) {
-            Platform.runLater(() -> {userList.getChildren().clear();;});
             var temp = communication.replace("USERS ", "");
             var users = temp.split("\n");
+            var userItems = new ArrayList<Text>();
             for (String string : users) {
                 var user = new Text(string);
                 user.getStyleClass().add("playerBox");
-                Platform.runLater(() -> {userList.getChildren().add(user);});
+                userItems.add(user);
             }
+            updates.submit(this, "users", () -> {userList.getChildren().setAll(userItems);});
         } else if (communication.startsWith("START")) {
-            Platform.runLater(() -> {
-                timer.cancel(false);
+            //Switching scenes detaches the update queue, so it waits until the queue has applied the updates before it,
+            //such as the latest users, and the pulse is over
+            updates.run(() -> Platform.runLater(() -> {
                 sendCommunication("SCORES");
                 gameWindow.openMultiplayerGame(userList.getChildren());
-            });
+            }));
         } else if (communication.startsWith("NICK")) {
             if (communication.contains(":")) {
                 var temp = communication.replace("NICK ", "");
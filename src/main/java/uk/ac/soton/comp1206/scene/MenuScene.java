@@ -1,5 +1,7 @@
 package uk.ac.soton.comp1206.scene;
 
+import java.io.IOException;
+
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
@@ -8,6 +10,7 @@ import javafx.animation.Timeline;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
@@ -20,7 +23,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import uk.ac.soton.comp1206.App;
+import uk.ac.soton.comp1206.ai.DemoPlayer;
+import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.Multimedia;
+import uk.ac.soton.comp1206.game.Puzzle;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -31,6 +37,11 @@ public class MenuScene extends BaseScene {
 
     private ImageView title;
 
+    /**
+     * The AI playing a game behind the menu
+     */
+    private DemoPlayer demo;
+
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
 
     /**
@@ -57,6 +68,15 @@ public class MenuScene extends BaseScene {
         menuPane.getStyleClass().add("menu-background");
         root.getChildren().add(menuPane);
 
+        //Show a game played by the AI behind the menu
+        demo = new DemoPlayer(5, 5);
+        var demoBoard = new GameBoard(demo.getGrid(), gameWindow.getWidth() / 2, gameWindow.getWidth() / 2);
+        demoBoard.setOpacity(0.3);
+        demoBoard.setMouseTransparent(true);
+        demo.setLineClearedListener(demoBoard::fadeOut);
+        menuPane.getChildren().add(demoBoard);
+        StackPane.setAlignment(demoBoard, Pos.CENTER);
+
         var mainPane = new BorderPane();
         menuPane.getChildren().add(mainPane);
 
@@ -77,6 +97,10 @@ public class MenuScene extends BaseScene {
         buttons.getChildren().add(singleplayerButton);
         singleplayerButton.getStyleClass().add("menuItem");
 
+        var puzzleButton = new Button("Puzzles");
+        buttons.getChildren().add(puzzleButton);
+        puzzleButton.getStyleClass().add("menuItem");
+
         var multiplayerButton = new Button("Multiplayer");
         buttons.getChildren().add(multiplayerButton);
         multiplayerButton.getStyleClass().add("menuItem");
@@ -95,6 +119,8 @@ public class MenuScene extends BaseScene {
 
         //Bind the button action to the startGame method in the menu
         singleplayerButton.setOnAction(this::startGame);
+        //Bind the button action to the openPuzzles method in the menu
+        puzzleButton.setOnAction(this::openPuzzles);
         //Bind the button action to the openMultiplayer method in the menu
         multiplayerButton.setOnAction(this::openMultiplayer);
         //Bind the button action to the openInstructions method in the menu
@@ -126,6 +152,16 @@ public class MenuScene extends BaseScene {
     public void initialise() {
         logger.info("Initializing the menu");
         playTitleAnimation();
+        demo.start(tasks);
+    }
+
+    /**
+     * Stop the demo game when the menu is left
+     */
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        demo.stop();
     }
 
     /**
@@ -136,12 +172,25 @@ public class MenuScene extends BaseScene {
         gameWindow.startChallenge();
     }
 
+    /**
+     * Handle when the puzzles button is pressed: load the puzzles and open the first, or say why they cannot be played
+     * @param event event
+     */
+    private void openPuzzles(ActionEvent event) {
+        try {
+            gameWindow.openPuzzle(Puzzle.load(PuzzleScene.SIZE, PuzzleScene.SIZE), 0);
+        } catch (IOException e) {
+            logger.error("Unable to load puzzles: " + e.getMessage());
+            new Alert(Alert.AlertType.ERROR, "The puzzles could not be loaded: " + e.getMessage()).showAndWait();
+        }
+    }
+
     /**
      * Handle when the instruction button is pressed
      * @param event event
      */
     private void openInstructions(ActionEvent event) {
-       gameWindow.openInstructions(); 
+        gameWindow.openInstructions();
     }
 
     /**
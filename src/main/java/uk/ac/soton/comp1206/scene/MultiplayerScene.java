@@ -14,7 +14,6 @@ import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.SequentialTransition;
 import javafx.animation.Timeline;
-import javafx.application.Platform;
 import javafx.beans.property.SimpleListProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -39,6 +38,7 @@ import uk.ac.soton.comp1206.component.PieceBoard;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 import uk.ac.soton.comp1206.game.Grid;
 import uk.ac.soton.comp1206.game.MultiplayerGame;
+import uk.ac.soton.comp1206.ui.FxUpdateQueue;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.ui.Components.HighScoreComponent;
@@ -52,6 +52,11 @@ public class MultiplayerScene extends ChallengeScene implements CommunicationsLi
 
     private TextField chatInput;
     private Text message;
+
+    /**
+     * Applies the changes to the UI made by messages from the server
+     */
+    private final FxUpdateQueue updates = FxUpdateQueue.getShared();
     private Leaderboard leaderboard;
     private boolean generated = false;
 
@@ -254,41 +259,48 @@ public class MultiplayerScene extends ChallengeScene implements CommunicationsLi
         if (communication.startsWith("MSG")) {
             var temp = communication.replace("MSG ", "");
             var userMessagesComponent = temp.split("\n");
-            for (String string : userMessagesComponent) {
-                var nickname = string.split(":")[0];
-                var msg = string.split(":")[1];
-                var messageComponent = nickname + ": " + msg;
-                Platform.runLater(() -> {
-                    message.setText(messageComponent);
-                });
-            }
+            //Only the last message is shown
+            var string = userMessagesComponent[userMessagesComponent.length - 1];
+            var nickname = string.split(":")[0];
+            var msg = string.split(":")[1];
+            var messageComponent = nickname + ": " + msg;
+            updates.submit(this, "message", () -> {
+                message.setText(messageComponent);
+            });
         } else if (communication.startsWith("DIE")) {
             var temp = communication.replace("DIE ", "");
             leaderboard.addDeadPlayer(temp);
-            Platform.runLater(() -> {generateGameBoards();});
+            updates.run(() -> {generateGameBoards();});
         } else if (communication.startsWith("BOARD")) {
             var temp = communication.replace("BOARD ", "");
             var username = temp.split(":")[0];
             var blockString = temp.split(":")[1];
             var blocks = blockString.split(" ");
+            var values = new int[blocks.length];
+            for (int i = 0; i < blocks.length; i++) {
+                values[i] = Integer.parseInt(blocks[i]);
+            }
 
-            int countX = 0;
-            int countY = 0;
-            for (Node child : multiplayerBoardsHolder.getChildren()) {
-                if (child instanceof GameBoard) {
-                    if (((GameBoard)child).getUsername().equals(username)) {
-                        var grid = ((GameBoard)child).getGridProperty();
-                        for (String string : blocks) {
-                            grid.set(countX, countY, new Integer(string));
-                            countY++;
-                            if (countY == 5) {
-                                countY = 0;
-                                countX++;
+            //A player's board is sent after every move, only the latest one needs drawing
+            updates.submit(this, "board " + username, () -> {
+                for (Node child : multiplayerBoardsHolder.getChildren()) {
+                    if (child instanceof GameBoard) {
+                        if (((GameBoard)child).getUsername().equals(username)) {
+                            var grid = ((GameBoard)child).getGridProperty();
+                            int countX = 0;
+                            int countY = 0;
+                            for (int value : values) {
+                                grid.set(countX, countY, value);
+                                countY++;
+                                if (countY == grid.getRows()) {
+                                    countY = 0;
+                                    countX++;
+                                }
                             }
                         }
                     }
                 }
-            }
+            });
         }
     }
 
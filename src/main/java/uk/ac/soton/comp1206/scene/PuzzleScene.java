@@ -0,0 +1,118 @@
+package uk.ac.soton.comp1206.scene;
+
+import java.util.List;
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.text.Text;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.game.Puzzle;
+import uk.ac.soton.comp1206.game.PuzzleGame;
+import uk.ac.soton.comp1206.ui.GameWindow;
+
+/**
+ * The puzzle scene. Plays one puzzle at a time in the challenge layout, without the timer: the board starts partly
+ * filled and the pieces come in a fixed order that can clear it. Once it is finished, ENTER moves on to the next
+ * puzzle and R starts it again.
+ */
+public class PuzzleScene extends ChallengeScene {
+
+    private static final Logger logger = LogManager.getLogger(PuzzleScene.class);
+
+    /**
+     * The size of the puzzle grid
+     */
+    public static final int SIZE = 5;
+
+    /**
+     * The puzzles being played, loaded once by the menu
+     */
+    private final List<Puzzle> puzzles;
+
+    /**
+     * The position of the puzzle in the list of puzzles
+     */
+    private final int index;
+
+    private PuzzleGame puzzleGame;
+    private Text status;
+
+    /**
+     * Create a new puzzle scene
+     * @param gameWindow the Game Window
+     * @param puzzles the puzzles being played
+     * @param index the number of the puzzle to play, wrapping around after the last
+     */
+    public PuzzleScene(GameWindow gameWindow, List<Puzzle> puzzles, int index) {
+        super(gameWindow);
+        this.puzzles = puzzles;
+        this.index = index;
+        logger.info("Creating Puzzle Scene");
+    }
+
+    /**
+     * Set up the game of the puzzle
+     */
+    @Override
+    public void setupGame() {
+        var puzzle = puzzles.get(Math.floorMod(index, puzzles.size()));
+        logger.info("Starting puzzle {} of {}: {}", index + 1, puzzles.size(), puzzle);
+
+        puzzleGame = new PuzzleGame(puzzle);
+        game = puzzleGame;
+    }
+
+    /**
+     * Build the puzzle window: the challenge layout with the puzzle number and pieces left instead of the timer
+     */
+    @Override
+    public void build() {
+        super.build();
+
+        var title = new Text("Puzzle " + (index + 1));
+        title.getStyleClass().add("title");
+        topItems.setCenter(title);
+
+        timer.setVisible(false);
+        status = new Text();
+        status.getStyleClass().add("heading");
+        bottomUI.getChildren().add(status);
+
+        puzzleGame.getPiecesLeftProperty().addListener(e -> updateStatus());
+        puzzleGame.getFinishedProperty().addListener(e -> updateStatus());
+        updateStatus();
+    }
+
+    /**
+     * Show the pieces left, or the result once the puzzle is finished
+     */
+    private void updateStatus() {
+        if (!puzzleGame.getFinishedProperty().get()) {
+            status.setText("Clear the board: " + puzzleGame.getPiecesLeftProperty().get() + " pieces left");
+        } else if (puzzleGame.getSolvedProperty().get()) {
+            status.setText("Solved! Press ENTER for the next puzzle");
+        } else {
+            status.setText("Not cleared. Press R to try again");
+        }
+    }
+
+    /**
+     * Handle key being pressed on the keyboard. Pieces cannot be swapped in a puzzle, so R starts it again instead.
+     * @param event the key event of the key that was pressed
+     */
+    @Override
+    public void handleKeyPress(KeyEvent event) {
+        if (event.getCode() == KeyCode.R) {
+            gameWindow.openPuzzle(puzzles, index);
+            return;
+        }
+        if (event.getCode() == KeyCode.ENTER && puzzleGame.getFinishedProperty().get()) {
+            gameWindow.openPuzzle(puzzles, puzzleGame.getSolvedProperty().get() ? index + 1 : index);
+            return;
+        }
+        super.handleKeyPress(event);
+    }
+}
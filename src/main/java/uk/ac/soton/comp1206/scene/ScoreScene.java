@@ -7,8 +7,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -29,6 +28,8 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.util.Pair;
+import uk.ac.soton.comp1206.ai.Bitboard;
+import uk.ac.soton.comp1206.ai.Oracle;
 import uk.ac.soton.comp1206.component.Multimedia;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 import uk.ac.soton.comp1206.game.Game;
@@ -52,7 +53,6 @@ public class ScoreScene extends BaseScene implements CommunicationsListener {
     private ObservableList<Pair<String, Integer>> remoteScores;
     private SimpleListProperty<Pair<String, Integer>> remoteScoreListWrapper;
 
-    private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private ScheduledFuture<?> timer;
 
     private BorderPane mainPane;
@@ -67,6 +67,11 @@ public class ScoreScene extends BaseScene implements CommunicationsListener {
 
     private String name;
 
+    /**
+     * The number of moves of every run of pieces the Oracle compares
+     */
+    private static final int ORACLE_WINDOW = 4;
+
 
     public ScoreScene(GameWindow gameWindow, Game game, boolean multiplayer) {
         super(gameWindow);
@@ -139,6 +144,10 @@ public class ScoreScene extends BaseScene implements CommunicationsListener {
         centerComponent.setAlignment(Pos.CENTER);
         mainPane.setCenter(centerComponent);
 
+        if (game.isMultiplayer()) {
+            analysePlay((MultiplayerGame) game);
+        }
+
         //Ask the user for a name if there is a new high score
         if (newScore) {
             centerComponent.getChildren().clear();
@@ -161,14 +170,43 @@ public class ScoreScene extends BaseScene implements CommunicationsListener {
                 var newScorePair = new Pair<String, Integer>(name, new Integer(game.getScore()));
                 scoreListWrapper.add(newScorePair);
                 writeScores();
-                timer = scheduler.scheduleWithFixedDelay(this::checkOnlineScoresArrives, 0, 100, TimeUnit.MILLISECONDS);
+                timer = tasks.scheduleWithFixedDelay(this::checkOnlineScoresArrives, 0, 100, TimeUnit.MILLISECONDS);
             });
             centerComponent.getChildren().add(newHighScoreContainer);
         } else {
-            timer = scheduler.scheduleWithFixedDelay(this::checkOnlineScoresArrives, 0, 100, TimeUnit.MILLISECONDS);
+            timer = tasks.scheduleWithFixedDelay(this::checkOnlineScoresArrives, 0, 100, TimeUnit.MILLISECONDS);
         }
     }
 
+    /**
+     * Compare the player's moves with the best play of the same pieces found by the Oracle, in the background, and
+     * show how close they came once it is done. The analysis is one of the scene's tasks and stops when the scene is
+     * left.
+     * @param multiplayerGame the finished game
+     */
+    private void analysePlay(MultiplayerGame multiplayerGame) {
+        if (!Bitboard.fits(game.getCols(), game.getRows())) return;
+
+        var analysisText = new Text("Analysing your game...");
+        analysisText.getStyleClass().add("heading");
+        mainPane.setBottom(analysisText);
+        BorderPane.setAlignment(analysisText, Pos.CENTER);
+
+        var placements = multiplayerGame.getPlacements();
+        var drawn = multiplayerGame.getDrawn();
+        var dealt = multiplayerGame.getDealt();
+        int finalScore = game.getScore();
+        tasks.execute(() -> {
+            //Every window is searched in parallel on the common pool, but the windows are walked by the scene's task
+            var oracle = new Oracle(game.getCols(), game.getRows());
+            var analysis = oracle.analyse(ForkJoinPool.commonPool(), placements, drawn, dealt, finalScore,
+                ORACLE_WINDOW, tasks::isCancelled);
+            if (tasks.isCancelled()) return;
+            logger.info(String.format("Oracle: %s, %.0f positions/s", analysis, analysis.getNodesPerSecond()));
+            Platform.runLater(() -> analysisText.setText(analysis.getWindows() == 0 ? "" : analysis.toString()));
+        });
+    }
+
     /**
      * Builds the score list UI
      */
@@ -199,7 +237,7 @@ public class ScoreScene extends BaseScene implements CommunicationsListener {
         if (remoteScoreListWrapper.size() == 10) {
             writeOnlineScores();
             Platform.runLater(() -> {generateScoreList();});
-            timer.cancel(false);
+            if (timer != null) timer.cancel(false);
         }
     }
 
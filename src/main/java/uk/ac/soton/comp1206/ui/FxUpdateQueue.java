@@ -0,0 +1,188 @@
+package uk.ac.soton.comp1206.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The FxUpdateQueue collects changes to the UI made from other threads, such as the network thread, and applies them
+ * on the JavaFX thread once per pulse, rather than each change taking a {@link Platform#runLater(Runnable)} of its
+ * own.
+ *
+ * An update can be given a key naming what it changes, such as a list of scores or a player's board. Keys belong to
+ * an owner, such as the scene or game submitting them, so two owners never replace each other's updates. An update
+ * for a key replaces any update for the same key not applied yet, so only the latest value of each key is ever
+ * applied, and a burst of messages about the same thing costs the JavaFX thread one change. Updates without a key,
+ * such as a chat line, are all applied.
+ *
+ * Updates are applied in the order they were submitted, an update for a key taking the place of the last one
+ * submitted for it. The GameWindow attaches the queue to the scene it shows, and the queue is drained before that
+ * scene's layout on the next pulse, so however many updates arrive between two pulses, they are applied together.
+ *
+ * Updates run in the middle of a pulse, so they must be quick changes to the scene graph. Anything that waits for the
+ * player, such as {@link javafx.scene.control.Alert#showAndWait()}, or switches scenes must use
+ * {@link Platform#runLater(Runnable)} instead.
+ */
+public class FxUpdateQueue {
+
+    private static final Logger logger = LogManager.getLogger(FxUpdateQueue.class);
+
+    private static final FxUpdateQueue shared = new FxUpdateQueue();
+
+    /**
+     * The updates not applied yet, by key, in the order they are to be applied. Guarded by itself.
+     */
+    private LinkedHashMap<Object, Runnable> pending = new LinkedHashMap<>();
+
+    /**
+     * Whether a pulse has been asked for and has not drained the queue yet
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Drains the queue, registered with the scene shown
+     */
+    private final Runnable pulseListener = this::apply;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @return the queue shared by the whole UI
+     */
+    public static FxUpdateQueue getShared() {
+        return shared;
+    }
+
+    /**
+     * Queue an update for a key, replacing any update for the same key and owner not applied yet. Can be called from
+     * any thread.
+     * @param owner what the key belongs to, such as the scene submitting it
+     * @param key what the update changes
+     * @param update the update, run on the JavaFX thread
+     */
+    public void submit(Object owner, String key, Runnable update) {
+        queue(List.of(owner, key), update);
+    }
+
+    /**
+     * Queue an update that is always applied. Can be called from any thread.
+     * @param update the update, run on the JavaFX thread
+     */
+    public void run(Runnable update) {
+        queue(new Object(), update);
+    }
+
+    /**
+     * Queue an update, replacing any update for the same key not applied yet
+     * @param key the key
+     * @param update the update
+     */
+    private void queue(Object key, Runnable update) {
+        submitted.increment();
+        synchronized (this) {
+            //Moved to the end, so it is still applied after everything submitted before it
+            if (pending.remove(key) != null) {
+                coalesced.increment();
+            }
+            pending.put(key, update);
+        }
+        schedule();
+    }
+
+    /**
+     * Ask for a pulse to apply the updates waiting, unless one has already been asked for
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.requestNextPulse();
+        }
+    }
+
+    /**
+     * Apply the updates on every pulse of a scene, before its layout. Must be called on the JavaFX thread.
+     * @param scene the scene being shown
+     */
+    public void attach(Scene scene) {
+        scene.addPreLayoutPulseListener(pulseListener);
+        //Updates that arrived while no scene was shown are applied on the first pulse of this one
+        Platform.requestNextPulse();
+    }
+
+    /**
+     * Stop applying the updates on the pulses of a scene. Must be called on the JavaFX thread.
+     * @param scene the scene no longer shown
+     */
+    public void detach(Scene scene) {
+        scene.removePreLayoutPulseListener(pulseListener);
+    }
+
+    /**
+     * Apply every update waiting. Runs on the JavaFX thread, before the layout of a pulse.
+     */
+    private void apply() {
+        //Cleared before taking the updates, so an update arriving from now on asks for a pulse of its own. Updates
+        //arriving while this batch runs go in the next batch.
+        if (!scheduled.getAndSet(false)) return;
+        ArrayList<Runnable> updates;
+        synchronized (this) {
+            updates = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+        }
+        if (updates.isEmpty()) return;
+
+        batches.increment();
+        for (var update : updates) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                logger.error("UI update failed", e);
+            }
+        }
+        applied.add(updates.size());
+    }
+
+    /**
+     * @return the number of updates submitted
+     */
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return the number of updates replaced by a later update for the same key before they were applied
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of updates applied
+     */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    /**
+     * @return the number of pulses updates were applied on
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d updates submitted, %d coalesced, %d applied in %d batches", getSubmitted(),
+            getCoalesced(), getApplied(), getBatches());
+    }
+}
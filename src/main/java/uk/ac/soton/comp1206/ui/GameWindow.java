@@ -1,5 +1,7 @@
 package uk.ac.soton.comp1206.ui;
 
+import java.util.List;
+
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.scene.Node;
@@ -14,6 +16,7 @@ import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.component.Multimedia;
 import uk.ac.soton.comp1206.event.KeyPressedListener;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Puzzle;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.*;
 
@@ -38,6 +41,11 @@ public class GameWindow {
 
     final Communicator communicator;
 
+    /**
+     * Runs the background and timed tasks of every scene
+     */
+    private final Scheduler scheduler = new Scheduler();
+
     private KeyPressedListener keyListener;
 
     /**
@@ -94,6 +102,16 @@ public class GameWindow {
         loadScene(new ChallengeScene(this));
     }
 
+    /**
+     * Display a puzzle
+     * @param puzzles the puzzles being played
+     * @param index the number of the puzzle
+     */
+    public void openPuzzle(List<Puzzle> puzzles, int index) {
+        Multimedia.stopPlayingBackgroundMusic();
+        loadScene(new PuzzleScene(this, puzzles, index));
+    }
+
     /**
      * Display the instructions screen
      */
@@ -156,6 +174,7 @@ public class GameWindow {
         currentScene = newScene;
         scene = newScene.setScene();
         stage.setScene(scene);
+        FxUpdateQueue.getShared().attach(scene);
         scene.setOnKeyPressed(e -> {
             keyListener.handleKeyPress(e);   
         });
@@ -173,11 +192,26 @@ public class GameWindow {
     }
 
     /**
-     * When switching scenes, perform any cleanup needed, such as removing previous listeners
+     * When switching scenes, perform any cleanup needed, such as removing previous listeners and cancelling the
+     * previous scene's tasks
      */
     public void cleanup() {
         logger.info("Clearing up previous scene");
         communicator.clearListeners();
+        FxUpdateQueue.getShared().detach(scene);
+        if (currentScene != null) {
+            currentScene.cleanup();
+        }
+        logger.info("Scheduler: {}", scheduler);
+        logger.info("UI updates: {}", FxUpdateQueue.getShared());
+    }
+
+    /**
+     * Get the scheduler running the tasks of every scene
+     * @return scheduler
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
     }
 
     /**
@@ -0,0 +1,222 @@
+package uk.ac.soton.comp1206.ui;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Scheduler runs the background and timed tasks of every scene on a small pool of daemon threads owned by the
+ * GameWindow, rather than each scene starting threads of its own.
+ *
+ * Every scene gets a TaskGroup of its own. When the GameWindow switches scenes it cleans up the old one, which cancels
+ * every task its group still has waiting or repeating and runs the group's cancel hooks. A scene's tasks can never
+ * outlive it, so however long the game runs, the number of threads and tasks stays the same.
+ */
+public class Scheduler {
+
+    private static final Logger logger = LogManager.getLogger(Scheduler.class);
+
+    /**
+     * The number of threads tasks run on
+     */
+    private static final int THREADS = 2;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final Set<TaskGroup> groups = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a new scheduler and its threads
+     */
+    public Scheduler() {
+        var count = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(THREADS, runnable -> {
+            var thread = new Thread(runnable, "Scheduler " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        //Cancelled tasks are dropped straight away rather than held until they would have run
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Create a new group of tasks
+     * @param name the name of the group, for logging
+     * @return the group
+     */
+    public TaskGroup newGroup(String name) {
+        var group = new TaskGroup(name);
+        groups.add(group);
+        return group;
+    }
+
+    /**
+     * Cancel every group and stop the threads
+     */
+    public void shutdown() {
+        for (var group : groups) {
+            group.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of threads started
+     */
+    public int getThreadCount() {
+        return executor.getPoolSize();
+    }
+
+    /**
+     * @return the number of tasks waiting, repeating or running
+     */
+    public int getTaskCount() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of groups that have not been cancelled
+     */
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d threads, %d tasks, %d groups, %d tasks run", getThreadCount(), getTaskCount(),
+            getGroupCount(), executor.getCompletedTaskCount());
+    }
+
+    /**
+     * The tasks of one scene, all cancelled together
+     */
+    public class TaskGroup {
+
+        private final String name;
+
+        private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+        private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelled;
+
+        /**
+         * Create a new group
+         * @param name the name of the group
+         */
+        private TaskGroup(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Run a task once, as soon as a thread is free
+         * @param task the task
+         * @return the task's future, or null if the group has been cancelled
+         */
+        public Future<?> execute(Runnable task) {
+            return schedule(task, 0, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Run a task once after a delay
+         * @param task the task
+         * @param delay the delay
+         * @param unit the unit of the delay
+         * @return the task's future, or null if the group has been cancelled
+         */
+        public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+            if (cancelled) return null;
+            try {
+                return track(executor.schedule(task, delay, unit));
+            } catch (RejectedExecutionException e) {
+                logger.error("Unable to schedule a task of {}: {}", name, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Run a task repeatedly, with a delay between the end of one run and the start of the next
+         * @param task the task
+         * @param initialDelay the delay before the first run
+         * @param delay the delay between runs
+         * @param unit the unit of the delays
+         * @return the task's future, or null if the group has been cancelled
+         */
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+            if (cancelled) return null;
+            try {
+                return track(executor.scheduleWithFixedDelay(task, initialDelay, delay, unit));
+            } catch (RejectedExecutionException e) {
+                logger.error("Unable to schedule a task of {}: {}", name, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Keep a task's future so it can be cancelled with the group, forgetting the tasks that have finished
+         * @param future the future
+         * @return the future
+         */
+        private ScheduledFuture<?> track(ScheduledFuture<?> future) {
+            tasks.removeIf(Future::isDone);
+            tasks.add(future);
+            //The group may have been cancelled while the task was being scheduled
+            if (cancelled) future.cancel(false);
+            return future;
+        }
+
+        /**
+         * Run something when the group is cancelled, for example to stop a thread the scene owns
+         * @param hook the code to run, on the thread cancelling the group
+         */
+        public void onCancel(Runnable hook) {
+            cancelHooks.add(hook);
+        }
+
+        /**
+         * Cancel every task of the group still waiting or repeating, and run the cancel hooks. Tasks running are
+         * allowed to finish. A cancelled group schedules nothing more.
+         */
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            groups.remove(this);
+            int count = 0;
+            for (var task : tasks) {
+                if (task.cancel(false)) count++;
+            }
+            tasks.clear();
+            for (var hook : cancelHooks) {
+                try {
+                    hook.run();
+                } catch (RuntimeException e) {
+                    logger.error("Cancel hook of " + name + " failed", e);
+                }
+            }
+            logger.info("Cancelled {} tasks of {}", count, name);
+        }
+
+        /**
+         * @return the number of tasks of the group waiting, repeating or running
+         */
+        public int getTaskCount() {
+            tasks.removeIf(Future::isDone);
+            return tasks.size();
+        }
+
+        /**
+         * @return true if the group has been cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
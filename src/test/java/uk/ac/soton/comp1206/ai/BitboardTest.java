@@ -0,0 +1,66 @@
+package uk.ac.soton.comp1206.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * Tests for the placement masks of a Bitboard
+ */
+public class BitboardTest {
+
+    /**
+     * Every placement of a piece is a different set of blocks, whatever the grid size
+     */
+    @Test
+    public void masksAreDistinct() {
+        for (int[] size : new int[][] {{5, 5}, {3, 3}, {8, 8}, {4, 6}}) {
+            var bitboard = Bitboard.forSize(size[0], size[1]);
+            for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+                var seen = new HashSet<Long>();
+                for (long mask : bitboard.getMasks(shape)) {
+                    assertTrue(seen.add(mask), "Piece " + shape + " repeats a mask on " + size[0] + " x " + size[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The pieces whose rotations only shift their blocks keep one mask per distinct placement
+     */
+    @Test
+    public void shiftedRotationsAreCountedOnce() {
+        var bitboard = Bitboard.forSize(5, 5);
+        assertEquals(16, bitboard.getMasks(4).length);
+        assertEquals(24, bitboard.getMasks(7).length);
+        assertEquals(24, bitboard.getMasks(8).length);
+        assertEquals(40, bitboard.getMasks(14).length);
+    }
+
+    /**
+     * Every mask is the blocks the piece fills when played at the rotation and centre stored for it
+     */
+    @Test
+    public void masksMatchTheirPlacements() {
+        var bitboard = Bitboard.forSize(5, 5);
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            long[] masks = bitboard.getMasks(shape);
+            for (int placement = 0; placement < masks.length; placement++) {
+                var grid = new Grid(5, 5);
+                var piece = GamePiece.createPiece(shape, bitboard.getRotation(shape, placement));
+                int x = bitboard.getX(shape, placement);
+                int y = bitboard.getY(shape, placement);
+                assertTrue(grid.playPiece(piece, x, y));
+                assertEquals(masks[placement], grid.getOccupancy());
+                assertEquals(Zobrist.hash(masks[placement]), bitboard.keyChange(shape, placement, 0));
+            }
+        }
+    }
+}
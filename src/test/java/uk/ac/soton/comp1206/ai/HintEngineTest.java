@@ -0,0 +1,128 @@
+package uk.ac.soton.comp1206.ai;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameState;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.SeededPieceSource;
+import uk.ac.soton.comp1206.ui.Scheduler;
+
+/**
+ * Tests for the hint engine
+ */
+public class HintEngineTest {
+
+    private Scheduler scheduler;
+    private Scheduler.TaskGroup tasks;
+
+    /**
+     * Create the scheduler the searches run on
+     */
+    @BeforeEach
+    public void setUp() {
+        scheduler = new Scheduler();
+        tasks = scheduler.newGroup("HintEngineTest");
+    }
+
+    /**
+     * Stop the scheduler
+     */
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Get the hints for a state
+     * @param engine the engine
+     * @param state the state
+     * @return the hints
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private List<Move> hintsFor(HintEngine engine, GameState state) throws InterruptedException {
+        var found = new AtomicReference<List<Move>>();
+        var done = new CountDownLatch(1);
+        engine.request(state, (hinted, hints) -> {
+            found.set(hints);
+            done.countDown();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return found.get();
+    }
+
+    /**
+     * Every hint for a state fills a different set of blocks
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void hintsAreDifferentPlacements() throws InterruptedException {
+        var engine = new HintEngine(tasks, 3, 1000000000L, Evaluator.DEFAULT);
+        var game = new GameEngine(5, 5, new SeededPieceSource(1));
+        game.start();
+        var policy = new GreedyPolicy();
+        for (int move = 0; move < 30 && !game.isGameOver(); move++) {
+            var state = game.getState();
+            var blocks = new HashSet<Long>();
+            for (var hint : hintsFor(engine, state)) {
+                var grid = new Grid(5, 5);
+                var piece = GamePiece.createPiece(state.getCurrentPiece().getShape(), hint.getRotation());
+                assertTrue(grid.playPiece(piece, hint.getX(), hint.getY()));
+                assertTrue(blocks.add(grid.getOccupancy()), "Hint repeated for " + state);
+            }
+            var chosen = policy.chooseMove(game);
+            if (chosen == null || !chosen.apply(game)) break;
+        }
+    }
+
+    /**
+     * However many requests are made at once, one search runs at a time on one of the scene's threads, and the
+     * latest request is always answered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void oneSearchInFlight() throws InterruptedException {
+        var engine = new HintEngine(tasks, 3, 2000000, Evaluator.DEFAULT);
+        var game = new GameEngine(5, 5, new SeededPieceSource(2));
+        game.start();
+
+        var active = new AtomicInteger();
+        var most = new AtomicInteger();
+        var answered = new AtomicReference<GameState>();
+        var done = new CountDownLatch(1);
+        GameState last = null;
+        for (int request = 0; request < 200; request++) {
+            game.rotate(1);
+            last = game.getState();
+            engine.request(last, (state, hints) -> {
+                most.accumulateAndGet(active.incrementAndGet(), Math::max);
+                answered.set(state);
+                active.decrementAndGet();
+            });
+            assertTrue(tasks.getTaskCount() <= 1);
+        }
+        var finalState = last;
+        engine.request(finalState, (state, hints) -> {
+            answered.set(state);
+            done.countDown();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertSame(finalState, answered.get());
+        assertTrue(most.get() <= 1);
+        assertFalse(engine.getCancelled() == 0);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.ac.soton.comp1206.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Puzzle;
+
+/**
+ * Tests for the puzzle generator and the puzzles shipped with the game
+ */
+public class PuzzleGeneratorTest {
+
+    /**
+     * Read the puzzles shipped with the game
+     * @return the puzzles
+     * @throws IOException if they cannot be read
+     */
+    private List<Puzzle> shipped() throws IOException {
+        try (var input = Puzzle.class.getResourceAsStream("/puzzles/" + Puzzle.fileName(5, 5))) {
+            assertNotNull(input);
+            return Puzzle.read(input);
+        }
+    }
+
+    /**
+     * A board of full rows with the blocks of one placement taken out is cleared only by playing the piece back in
+     * that placement, so it has one solution, whichever piece and placement it is
+     */
+    @Test
+    public void everyPieceCountsEachSolutionOnce() {
+        var generator = new PuzzleGenerator(5, 5, 1, 1, 0);
+        var bitboard = Bitboard.forSize(5, 5);
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            for (long mask : bitboard.getMasks(shape)) {
+                long rows = 0;
+                for (int row = 0; row < 5; row++) {
+                    if ((mask & bitboard.getLine(row)) != 0) rows |= bitboard.getLine(row);
+                }
+                assertEquals(1, generator.countSolutions(rows & ~mask, new int[] {shape}, 10));
+            }
+        }
+    }
+
+    /**
+     * Every shipped puzzle has the one solution it was generated with
+     * @throws IOException if the puzzles cannot be read
+     */
+    @Test
+    public void shippedPuzzlesHaveOneSolution() throws IOException {
+        var generator = new PuzzleGenerator(5, 5, 4, 1, 8);
+        for (var puzzle : shipped()) {
+            assertEquals(1, generator.countSolutions(puzzle.getBoard(), puzzle.getPieces(), 2), puzzle.toString());
+        }
+    }
+
+    /**
+     * No piece is left out of the shipped puzzles
+     * @throws IOException if the puzzles cannot be read
+     */
+    @Test
+    public void shippedPuzzlesUseEveryPiece() throws IOException {
+        var used = new boolean[GamePiece.PIECES];
+        for (var puzzle : shipped()) {
+            for (int shape : puzzle.getPieces()) {
+                used[shape] = true;
+            }
+        }
+        for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+            assertTrue(used[shape], "Piece " + shape + " is never used");
+        }
+    }
+}
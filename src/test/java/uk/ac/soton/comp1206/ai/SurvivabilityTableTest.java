@@ -0,0 +1,71 @@
+package uk.ac.soton.comp1206.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Tests for generating and loading a SurvivabilityTable
+ */
+public class SurvivabilityTableTest {
+
+    /**
+     * The count of every board is the number of pieces with a legal placement on it
+     * @param directory where the table is written
+     * @throws IOException if the table cannot be written or read
+     */
+    @Test
+    public void countsMatchLegalPlacements(@TempDir Path directory) throws IOException {
+        var path = directory.resolve(SurvivabilityTable.fileName(3, 4));
+        SurvivabilityTable.generate(3, 4, path, ForkJoinPool.commonPool());
+        var table = SurvivabilityTable.open(path);
+
+        for (long board = 0; board < 1 << 12; board++) {
+            var grid = new Grid(3, 4);
+            for (int block = 0; block < 12; block++) {
+                if ((board >>> block & 1) != 0) grid.set(block % 3, block / 3, 1);
+            }
+            int playable = 0;
+            for (int shape = 0; shape < GamePiece.PIECES; shape++) {
+                if (grid.hasLegalPlacement(GamePiece.createPiece(shape))) playable++;
+            }
+            assertEquals(playable, table.countPlayable(board), "Board " + Long.toBinaryString(board));
+        }
+    }
+
+    /**
+     * A table file is only used for the grid size in its header, even when it is found under another size's name
+     * @param directory where the tables are looked for
+     * @throws IOException if the table cannot be written
+     */
+    @Test
+    public void rejectsTableForAnotherSize(@TempDir Path directory) throws IOException {
+        var path = directory.resolve(SurvivabilityTable.fileName(3, 3));
+        SurvivabilityTable.generate(3, 3, path, ForkJoinPool.commonPool());
+        Files.copy(path, directory.resolve(SurvivabilityTable.fileName(1, 9)));
+
+        var previous = System.getProperty(SurvivabilityTable.DIRECTORY_PROPERTY);
+        System.setProperty(SurvivabilityTable.DIRECTORY_PROPERTY, directory.toString());
+        try {
+            assertNotNull(SurvivabilityTable.forSize(3, 3));
+            assertNull(SurvivabilityTable.forSize(1, 9));
+        } finally {
+            if (previous == null) {
+                System.clearProperty(SurvivabilityTable.DIRECTORY_PROPERTY);
+            } else {
+                System.setProperty(SurvivabilityTable.DIRECTORY_PROPERTY, previous);
+            }
+        }
+    }
+}
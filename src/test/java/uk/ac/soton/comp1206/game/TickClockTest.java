@@ -0,0 +1,83 @@
+package uk.ac.soton.comp1206.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the timeouts of a TickClock
+ */
+public class TickClockTest {
+
+    /**
+     * Scheduling a timeout on an unlimited clock does not move it; only its owner's waits do
+     * @throws InterruptedException if interrupted while sleeping
+     */
+    @Test
+    public void unlimitedClockMovesWhenSleptOn() throws InterruptedException {
+        var clock = new TickClock();
+        clock.setUnlimited(true);
+        long start = clock.getTick();
+        var runs = new AtomicInteger();
+        var timeout = clock.newTimeout(runs::incrementAndGet);
+
+        timeout.schedule(100);
+        assertEquals(start, clock.getTick());
+        assertEquals(0, runs.get());
+
+        clock.sleep(50);
+        assertEquals(start + 50, clock.getTick());
+        assertEquals(0, runs.get());
+
+        clock.sleep(50);
+        assertEquals(start + 100, clock.getTick());
+        assertEquals(1, runs.get());
+    }
+
+    /**
+     * A timeout rescheduled after every wait, as the game loop is after every move, never runs on an unlimited clock
+     * while the waits are shorter than it
+     * @throws InterruptedException if interrupted while sleeping
+     */
+    @Test
+    public void restartedTimeoutWaitsOnUnlimitedClock() throws InterruptedException {
+        var clock = new TickClock();
+        clock.setUnlimited(true);
+        var runs = new AtomicInteger();
+        var timeout = clock.newTimeout(runs::incrementAndGet);
+        for (int move = 0; move < 100; move++) {
+            timeout.schedule(1200);
+            clock.sleep(10);
+        }
+        assertEquals(0, runs.get());
+        assertTrue(timeout.isScheduled());
+    }
+
+    /**
+     * Going unlimited leaves waiting timeouts at their ticks until the clock is stepped on to them, and a tick already
+     * passed runs straight away
+     */
+    @Test
+    public void steppingRunsDueTimeouts() {
+        var clock = new TickClock();
+        clock.pause();
+        var runs = new AtomicInteger();
+        var timeout = clock.newTimeout(runs::incrementAndGet);
+        timeout.schedule(1000);
+        clock.setUnlimited(true);
+        assertEquals(0, runs.get());
+
+        clock.step(999);
+        assertEquals(0, runs.get());
+        clock.step(1);
+        assertEquals(1, runs.get());
+        assertFalse(timeout.isScheduled());
+
+        timeout.scheduleAt(clock.getTick() - 5);
+        assertEquals(2, runs.get());
+    }
+}